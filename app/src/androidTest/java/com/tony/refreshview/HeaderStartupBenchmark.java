@@ -0,0 +1,94 @@
+package com.tony.refreshview;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.util.Log;
+import android.view.View;
+
+import com.tony.refreshview.core.ClassicRefreshHeader;
+import com.tony.refreshview.core.LightRefreshHeader;
+
+/**
+ * 对比 {@link ClassicRefreshHeader} 和 {@link LightRefreshHeader} 的启动开销：创建、measure/layout、draw。
+ * <p/>
+ * 结果输出到 logcat，tag 为 HeaderStartupBenchmark：
+ * <pre>
+ * adb shell am instrument -w -e class com.tony.refreshview.HeaderStartupBenchmark \
+ *     com.tony.refreshview.test/android.test.InstrumentationTestRunner
+ * </pre>
+ */
+public class HeaderStartupBenchmark extends InstrumentationTestCase {
+    private static final String TAG = "HeaderStartupBenchmark";
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    private interface HeaderFactory {
+        View create(Context context);
+    }
+
+    private static final HeaderFactory CLASSIC = new HeaderFactory() {
+        @Override
+        public View create(Context context) {
+            return new ClassicRefreshHeader(context);
+        }
+    };
+
+    private static final HeaderFactory LIGHT = new HeaderFactory() {
+        @Override
+        public View create(Context context) {
+            return new LightRefreshHeader(context);
+        }
+    };
+
+    @UiThreadTest
+    public void testStartupCost() {
+        final Context context = getInstrumentation().getTargetContext();
+        final int width = context.getResources().getDisplayMetrics().widthPixels;
+        final Bitmap bitmap = Bitmap.createBitmap(width, width / 4, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+
+        run(context, canvas, CLASSIC, WARMUP);
+        run(context, canvas, LIGHT, WARMUP);
+        long[] classic = run(context, canvas, CLASSIC, ITERATIONS);
+        long[] light = run(context, canvas, LIGHT, ITERATIONS);
+        bitmap.recycle();
+
+        report("classic", classic);
+        report("light", light);
+    }
+
+    /**
+     * @return 创建、measure + layout、draw 三个阶段每次的平均耗时，单位 ns
+     */
+    private static long[] run(Context context, Canvas canvas, HeaderFactory factory, int iterations) {
+        final int widthSpec = View.MeasureSpec.makeMeasureSpec(canvas.getWidth(), View.MeasureSpec.EXACTLY);
+        final int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        long[] result = new long[3];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            View header = factory.create(context);
+            long created = System.nanoTime();
+            header.measure(widthSpec, heightSpec);
+            header.layout(0, 0, header.getMeasuredWidth(), header.getMeasuredHeight());
+            long laidOut = System.nanoTime();
+            header.draw(canvas);
+            long drawn = System.nanoTime();
+
+            result[0] += created - start;
+            result[1] += laidOut - created;
+            result[2] += drawn - laidOut;
+        }
+        for (int i = 0; i < result.length; i++) {
+            result[i] /= iterations;
+        }
+        return result;
+    }
+
+    private static void report(String name, long[] result) {
+        Log.i(TAG, String.format("%s: create %d us, measure+layout %d us, draw %d us",
+                name, result[0] / 1000, result[1] / 1000, result[2] / 1000));
+    }
+}
@@ -6,8 +6,10 @@ import android.view.View;
 import android.widget.ScrollView;
 import android.widget.TextView;
 
+import com.tony.refreshview.core.CachedRefresh;
 import com.tony.refreshview.core.ClassicRefreshLayout;
-import com.tony.refreshview.core.DefaultRefresh;
+import com.tony.refreshview.core.RefreshTask;
+import com.tony.refreshview.core.SpeculativeRefresh;
 import com.tony.refreshview.core.UIRefresh;
 import com.tony.refreshview.core.UIRefreshHook;
 import com.tony.refreshview.core.RefreshLayout;
@@ -58,17 +60,10 @@ public class MainActivity extends AppCompatActivity {
                 resume();
             }
         });
-        mClassicRefreshLayout.setPtrHandler(new DefaultRefresh() {
-            @Override
-            public void onRefreshBegin(RefreshLayout refreshLayout) {
-                refreshLayout.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        mClassicRefreshLayout.refreshComplete();
-                    }
-                }, 1500);
-            }
-        });
+        DemoRefresh refresh = new DemoRefresh();
+        refresh.attachTo(mCrl);
+        mClassicRefreshLayout.setPtrHandler(refresh);
+        mClassicRefreshLayout.setSpeculativeRefreshRatio(0.6f);
         mTvFirst.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -76,4 +71,27 @@ public class MainActivity extends AppCompatActivity {
             }
         });
     }
+
+    /**
+     * 模拟 1.5s 的加载，结束后由 RefreshLayout 自动调用 refreshComplete。
+     * 下拉到刷新距离的 60% 时就提前开始加载。
+     */
+    private static class DemoRefresh extends CachedRefresh implements SpeculativeRefresh {
+        @Override
+        public RefreshTask onRefreshTask(RefreshLayout refreshLayout) {
+            final RefreshTask task = new RefreshTask();
+            refreshLayout.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    task.complete();
+                }
+            }, 1500);
+            return task;
+        }
+
+        @Override
+        public RefreshTask onSpeculativeRefresh(RefreshLayout refreshLayout) {
+            return onRefreshTask(refreshLayout);
+        }
+    }
 }
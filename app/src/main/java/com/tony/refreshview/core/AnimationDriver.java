@@ -0,0 +1,112 @@
+package com.tony.refreshview.core;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * 动画驱动器，按帧回调滚动逻辑。
+ * <p/>
+ * 默认在 API 16 以上使用 Choreographer，与 vsync 对齐；低版本退化为 View.postDelayed。
+ * 可以通过 {@link RefreshLayout#setAnimationDriver(AnimationDriver)} 替换。
+ */
+public abstract class AnimationDriver {
+
+    public interface FrameCallback {
+        /**
+         * @param frameTimeNanos 帧时间，与 {@link System#nanoTime()} 同一时钟
+         */
+        void doFrame(long frameTimeNanos);
+    }
+
+    /**
+     * 在下一帧回调，同一个 callback 重复 post 只会回调一次。
+     *
+     * @param callback
+     */
+    public abstract void postFrameCallback(FrameCallback callback);
+
+    public abstract void removeFrameCallback(FrameCallback callback);
+
+    public static AnimationDriver create(View view) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return new ChoreographerDriver();
+        }
+        return new LegacyDriver(view);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerDriver extends AnimationDriver implements Choreographer.FrameCallback {
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+        private FrameCallback mCallback;
+
+        @Override
+        public void postFrameCallback(FrameCallback callback) {
+            if (mCallback != null) {
+                if (mCallback == callback) {
+                    return;
+                }
+                mChoreographer.removeFrameCallback(this);
+            }
+            mCallback = callback;
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void removeFrameCallback(FrameCallback callback) {
+            if (mCallback == callback) {
+                mCallback = null;
+                mChoreographer.removeFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            final FrameCallback callback = mCallback;
+            mCallback = null;
+            if (callback != null) {
+                callback.doFrame(frameTimeNanos);
+            }
+        }
+    }
+
+    private static class LegacyDriver extends AnimationDriver implements Runnable {
+        private static final long FRAME_DELAY = 10;
+        private final View mView;
+        private FrameCallback mCallback;
+
+        LegacyDriver(View view) {
+            mView = view;
+        }
+
+        @Override
+        public void postFrameCallback(FrameCallback callback) {
+            if (mCallback != null) {
+                if (mCallback == callback) {
+                    return;
+                }
+                mView.removeCallbacks(this);
+            }
+            mCallback = callback;
+            mView.postDelayed(this, FRAME_DELAY);
+        }
+
+        @Override
+        public void removeFrameCallback(FrameCallback callback) {
+            if (mCallback == callback) {
+                mCallback = null;
+                mView.removeCallbacks(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            final FrameCallback callback = mCallback;
+            mCallback = null;
+            if (callback != null) {
+                callback.doFrame(System.nanoTime());
+            }
+        }
+    }
+}
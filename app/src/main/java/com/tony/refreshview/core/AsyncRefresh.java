@@ -0,0 +1,22 @@
+package com.tony.refreshview.core;
+
+/**
+ * {@link Refresh} 可以同时实现这个接口，用返回的 {@link RefreshTask} 代替手动调用 {@link RefreshLayout#refreshComplete()}。
+ * <p/>
+ * 实现了这个接口的 Refresh 只在 onRefreshTask 返回 null 时才收到 {@link Refresh#onRefreshBegin(RefreshLayout)}，
+ * 继承 {@link DefaultRefresh} 时不需要实现它。RefreshLayout 会：
+ * <ul>
+ * <li>任务 complete、fail 或被 cancel 后自动结束刷新，只有 complete 记录最后更新时间</li>
+ * <li>离开窗口时取消任务</li>
+ * <li>已经有任务在加载时不再创建新任务，重复的自动刷新或连续刷新都等待同一次加载</li>
+ * </ul>
+ */
+public interface AsyncRefresh {
+    /**
+     * 开始加载，在 UI 线程调用
+     *
+     * @param refreshLayout
+     * @return 这次加载的任务，返回 null 时退回到 onRefreshBegin 和手动调用 refreshComplete
+     */
+    RefreshTask onRefreshTask(RefreshLayout refreshLayout);
+}
@@ -0,0 +1,126 @@
+package com.tony.refreshview.core;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+import android.widget.ScrollView;
+
+/**
+ * 缓存 Content 是否可以下拉的判断。
+ * <p/>
+ * {@link DefaultRefresh} 在每次 ACTION_MOVE 都会调用 canScrollVertically，复杂的 Content 代价不低。
+ * 这里只在 Content 滚动或重新布局后重新判断一次，其余时候直接返回缓存的结果。
+ * 使用时通过 attachTo 系列方法绑定 Content，Content 的其他变化可以调用 {@link #invalidate()}。
+ */
+public abstract class CachedRefresh extends DefaultRefresh {
+    private boolean mDirty = true;
+    private boolean mCanRefresh;
+
+    private final View.OnLayoutChangeListener mLayoutChangeListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            invalidate();
+        }
+    };
+
+    //ScrollView 的滚动只能从 ViewTreeObserver 监听，离开窗口时要移除，否则窗口的 ViewTreeObserver 一直持有它
+    private final ViewTreeObserver.OnScrollChangedListener mScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            invalidate();
+        }
+    };
+
+    private final View.OnAttachStateChangeListener mAttachStateChangeListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            v.getViewTreeObserver().addOnScrollChangedListener(mScrollChangedListener);
+            invalidate();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            v.getViewTreeObserver().removeOnScrollChangedListener(mScrollChangedListener);
+        }
+    };
+
+    @Override
+    public boolean canRefresh(RefreshLayout refreshLayout, View header, View content) {
+        if (mDirty) {
+            mCanRefresh = checkCanRefresh(refreshLayout, header, content);
+            mDirty = false;
+        }
+        return mCanRefresh;
+    }
+
+    /**
+     * 缓存失效后真正的判断，默认是 {@link DefaultRefresh#canRefresh(RefreshLayout, View, View)}
+     */
+    protected boolean checkCanRefresh(RefreshLayout refreshLayout, View header, View content) {
+        return super.canRefresh(refreshLayout, header, content);
+    }
+
+    /**
+     * 让缓存失效，下一次 canRefresh 重新判断
+     */
+    public void invalidate() {
+        mDirty = true;
+    }
+
+    public void attachTo(AbsListView listView) {
+        attachTo(listView, null);
+    }
+
+    /**
+     * AbsListView 只能设置一个 OnScrollListener，原有的 listener 通过 delegate 传入。
+     *
+     * @param listView
+     * @param delegate
+     */
+    public void attachTo(AbsListView listView, final AbsListView.OnScrollListener delegate) {
+        listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                if (delegate != null) {
+                    delegate.onScrollStateChanged(view, scrollState);
+                }
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                invalidate();
+                if (delegate != null) {
+                    delegate.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+                }
+            }
+        });
+        listView.addOnLayoutChangeListener(mLayoutChangeListener);
+        invalidate();
+    }
+
+    /**
+     * 只在 ScrollView 在窗口中时监听滚动，离开窗口时移除
+     *
+     * @param scrollView
+     */
+    public void attachTo(ScrollView scrollView) {
+        scrollView.addOnAttachStateChangeListener(mAttachStateChangeListener);
+        if (scrollView.getWindowToken() != null) {
+            mAttachStateChangeListener.onViewAttachedToWindow(scrollView);
+        }
+        scrollView.addOnLayoutChangeListener(mLayoutChangeListener);
+        invalidate();
+    }
+
+    public void attachTo(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                invalidate();
+            }
+        });
+        recyclerView.addOnLayoutChangeListener(mLayoutChangeListener);
+        invalidate();
+    }
+}
@@ -0,0 +1,61 @@
+package com.tony.refreshview.core;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.tony.refreshview.R;
+
+/**
+ * 默认的加载更多 Footer：加载中显示进度和文字，没有更多时只显示文字。
+ * 只有预加载没来得及返回、用户已经滑到底部时才会出现。
+ */
+public class ClassicLoadMoreFooter extends LinearLayout implements UILoadMore {
+    private ProgressBar mProgressBar;
+    private TextView mTitleTextView;
+
+    public ClassicLoadMoreFooter(Context context) {
+        super(context);
+        initViews();
+    }
+
+    public ClassicLoadMoreFooter(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        initViews();
+    }
+
+    private void initViews() {
+        setOrientation(HORIZONTAL);
+        setGravity(Gravity.CENTER);
+        setMinimumHeight(getResources().getDimensionPixelSize(R.dimen.cube_ptr_load_more_footer_height));
+
+        mProgressBar = new ProgressBar(getContext(), null, android.R.attr.progressBarStyleSmall);
+        addView(mProgressBar, new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT));
+
+        mTitleTextView = new TextView(getContext());
+        mTitleTextView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 12);
+        mTitleTextView.setTextColor(0xff333333);
+        LayoutParams lp = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        lp.leftMargin = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 8, getResources().getDisplayMetrics());
+        addView(mTitleTextView, lp);
+        mTitleTextView.setText(R.string.cube_ptr_loading_more);
+    }
+
+    @Override
+    public void onUILoadMoreBegin(RefreshLayout refreshLayout) {
+        mProgressBar.setVisibility(VISIBLE);
+        mTitleTextView.setText(R.string.cube_ptr_loading_more);
+    }
+
+    @Override
+    public void onUILoadMoreComplete(RefreshLayout refreshLayout, boolean hasMore) {
+        mProgressBar.setVisibility(GONE);
+        if (!hasMore) {
+            mTitleTextView.setText(R.string.cube_ptr_no_more);
+        }
+    }
+}
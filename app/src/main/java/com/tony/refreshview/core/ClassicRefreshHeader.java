@@ -1,9 +1,7 @@
 package com.tony.refreshview.core;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.res.TypedArray;
-import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -15,15 +13,10 @@ import android.widget.TextView;
 import com.tony.refreshview.R;
 import com.tony.refreshview.indicator.RefreshIndicator;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
 /**
  * Created by tony on 6/25/16.
  */
 public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
-    private final static String KEY_SharedPreferences = "cube_ptr_classic_last_update";
-    private static SimpleDateFormat sDataFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     private int mRotateAniTime = 150;
     private RotateAnimation mFlipAnimation;
     private RotateAnimation mReverseFlipAnimation;
@@ -31,10 +24,7 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
     private TextView mTitleTextView;
     private View mProgressBar;
     private TextView mLastUpdateTextView;
-    private String mLastUpdateTimeKey;
-    private boolean mShouldShowLastUpdate;
-    private long mLastUpdateTime = -1;
-    private LastUpdateTimeUpdater mLastUpdateTimeUpdater = new LastUpdateTimeUpdater();
+    private LastUpdateTimeUpdater mLastUpdateTimeUpdater;
 
     public ClassicRefreshHeader(Context context) {
         super(context);
@@ -57,6 +47,16 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
             mRotateAniTime = arr.getInt(R.styleable.ClassicHeader_rotate_ani_time, mRotateAniTime);
             arr.recycle();
         }
+        mLastUpdateTimeUpdater = new LastUpdateTimeUpdater(this, new LastUpdateTimeUpdater.Callback() {
+            @Override
+            public void onLastUpdateTimeChanged(boolean visible, boolean textChanged) {
+                if (textChanged) {
+                    //文字没有变化时不调用 setText，避免重新测量
+                    mLastUpdateTextView.setText(mLastUpdateTimeUpdater.getText(), 0, mLastUpdateTimeUpdater.getTextLength());
+                }
+                mLastUpdateTextView.setVisibility(visible ? VISIBLE : GONE);
+            }
+        });
         buildAnimation();
         View header = LayoutInflater.from(getContext()).inflate(R.layout.cube_ptr_classic_default_header, this);
 
@@ -65,6 +65,7 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
         mTitleTextView = (TextView) header.findViewById(R.id.ptr_classic_header_rotate_view_header_title);
         mLastUpdateTextView = (TextView) header.findViewById(R.id.ptr_classic_header_rotate_view_header_last_update);
         mProgressBar = header.findViewById(R.id.ptr_classic_header_rotate_view_progressbar);
+        mLastUpdateTextView.setVisibility(GONE);
 
         resetView();
     }
@@ -94,10 +95,7 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
      * @param key
      */
     public void setLastUpdateTimeKey(String key) {
-        if (TextUtils.isEmpty(key)) {
-            return;
-        }
-        mLastUpdateTimeKey = key;
+        mLastUpdateTimeUpdater.setKey(key);
     }
 
     public void setRotateAniTime(int time) {
@@ -119,65 +117,12 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
     @Override
     public void onUIReset(RefreshLayout refreshLayout) {
         resetView();
-        mShouldShowLastUpdate = true;
-        tryUpdateLastUpdateTime();
-    }
-    private void tryUpdateLastUpdateTime() {
-        if (TextUtils.isEmpty(mLastUpdateTimeKey) || !mShouldShowLastUpdate) {
-            mLastUpdateTextView.setVisibility(GONE);
-        } else {
-            String time = getLastUpdateTime();
-            if (TextUtils.isEmpty(time)) {
-                mLastUpdateTextView.setVisibility(GONE);
-            } else {
-                mLastUpdateTextView.setVisibility(VISIBLE);
-                mLastUpdateTextView.setText(time);
-            }
-        }
-    }
-    private String getLastUpdateTime() {
-
-        if (mLastUpdateTime == -1 && !TextUtils.isEmpty(mLastUpdateTimeKey)) {
-            mLastUpdateTime = getContext().getSharedPreferences(KEY_SharedPreferences, 0).getLong(mLastUpdateTimeKey, -1);
-        }
-        if (mLastUpdateTime == -1) {
-            return null;
-        }
-        long diffTime = new Date().getTime() - mLastUpdateTime;
-        int seconds = (int) (diffTime / 1000);
-        if (diffTime < 0) {
-            return null;
-        }
-        if (seconds <= 0) {
-            return null;
-        }
-        StringBuilder sb = new StringBuilder();
-        sb.append(getContext().getString(R.string.cube_ptr_last_update));
-
-        if (seconds < 60) {
-            sb.append(seconds + getContext().getString(R.string.cube_ptr_seconds_ago));
-        } else {
-            int minutes = (seconds / 60);
-            if (minutes > 60) {
-                int hours = minutes / 60;
-                if (hours > 24) {
-                    Date date = new Date(mLastUpdateTime);
-                    sb.append(sDataFormat.format(date));
-                } else {
-                    sb.append(hours + getContext().getString(R.string.cube_ptr_hours_ago));
-                }
-
-            } else {
-                sb.append(minutes + getContext().getString(R.string.cube_ptr_minutes_ago));
-            }
-        }
-        return sb.toString();
+        mLastUpdateTimeUpdater.setShouldShow(true);
     }
 
     @Override
     public void onUIRefreshPrepare(RefreshLayout refreshLayout) {
-        mShouldShowLastUpdate = true;
-        tryUpdateLastUpdateTime();
+        mLastUpdateTimeUpdater.setShouldShow(true);
         mLastUpdateTimeUpdater.start();
 
         mProgressBar.setVisibility(INVISIBLE);
@@ -193,13 +138,12 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
 
     @Override
     public void onUIRefreshBegin(RefreshLayout refreshLayout) {
-        mShouldShowLastUpdate = false;
         hideRotateView();
         mProgressBar.setVisibility(VISIBLE);
         mTitleTextView.setVisibility(VISIBLE);
         mTitleTextView.setText(R.string.cube_ptr_refreshing);
 
-        tryUpdateLastUpdateTime();
+        mLastUpdateTimeUpdater.setShouldShow(false);
         mLastUpdateTimeUpdater.stop();
     }
 
@@ -211,12 +155,8 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
         mTitleTextView.setVisibility(VISIBLE);
         mTitleTextView.setText(getResources().getString(R.string.cube_ptr_refresh_complete));
 
-        // update last update time
-        SharedPreferences sharedPreferences = getContext().getSharedPreferences(KEY_SharedPreferences, 0);
-        if (!TextUtils.isEmpty(mLastUpdateTimeKey)) {
-            mLastUpdateTime = new Date().getTime();
-            sharedPreferences.edit().putLong(mLastUpdateTimeKey, mLastUpdateTime).commit();
-        }
+        // update last update time, written to disk in background
+        mLastUpdateTimeUpdater.onRefreshComplete(refreshLayout);
     }
 
     @Override
@@ -258,32 +198,6 @@ public class ClassicRefreshHeader extends FrameLayout implements UIRefresh {
             mTitleTextView.setText(getResources().getString(R.string.cube_ptr_pull_down));
         }
     }
-    private class LastUpdateTimeUpdater implements Runnable {
-
-        private boolean mRunning = false;
-
-        private void start() {
-            if (TextUtils.isEmpty(mLastUpdateTimeKey)) {
-                return;
-            }
-            mRunning = true;
-            run();
-        }
-
-        private void stop() {
-            mRunning = false;
-            removeCallbacks(this);
-        }
-
-        @Override
-        public void run() {
-            tryUpdateLastUpdateTime();
-            if (mRunning) {
-                postDelayed(this, 1000);
-            }
-        }
-    }
-
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
@@ -1,45 +1,84 @@
 package com.tony.refreshview.core;
 
 import android.content.Context;
+import android.content.res.TypedArray;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.view.View;
+
+import com.tony.refreshview.R;
 
 /**
  * Created by tony on 6/24/16.
  */
 public class ClassicRefreshLayout extends RefreshLayout {
     private ClassicRefreshHeader mPtrClassicHeader;
+    //懒加载时 Header 还没有创建，先记下来
+    private String mLastUpdateTimeKey;
 
     public ClassicRefreshLayout(Context context) {
         super(context);
-        initViews();
+        initViews(null);
     }
 
     public ClassicRefreshLayout(Context context, AttributeSet attrs) {
         super(context, attrs);
-        initViews();
+        initViews(attrs);
     }
 
     public ClassicRefreshLayout(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        initViews();
+        initViews(attrs);
+    }
+
+    private void initViews(AttributeSet attrs) {
+        boolean lazyHeader = false;
+        TypedArray arr = getContext().obtainStyledAttributes(attrs, R.styleable.ClassicRefreshLayout, 0, 0);
+        if (arr != null) {
+            lazyHeader = arr.getBoolean(R.styleable.ClassicRefreshLayout_lazy_header, lazyHeader);
+            arr.recycle();
+        }
+        if (lazyHeader) {
+            setHeaderFactory(new HeaderFactory() {
+                @Override
+                public View createHeader(RefreshLayout refreshLayout) {
+                    return createClassicHeader();
+                }
+            }, getResources().getDimensionPixelSize(R.dimen.cube_ptr_classic_header_height));
+        } else {
+            setHeaderView(createClassicHeader());
+        }
     }
 
-    private void initViews() {
+    private ClassicRefreshHeader createClassicHeader() {
         mPtrClassicHeader = new ClassicRefreshHeader(getContext());
-        setHeaderView(mPtrClassicHeader);
+        if (mLastUpdateTimeKey != null) {
+            mPtrClassicHeader.setLastUpdateTimeKey(mLastUpdateTimeKey);
+        }
         addPtrUIHandler(mPtrClassicHeader);
+        return mPtrClassicHeader;
     }
 
+    /**
+     * 懒加载模式下会立即创建 Header
+     */
     public ClassicRefreshHeader getHeader() {
+        ensureHeaderView();
         return mPtrClassicHeader;
     }
 
     /**
-     * Specify the last update time by this key string
+     * Specify the last update time by this key string.
+     * 同时作为 {@link #setFreshnessKey(String)}，给这个 key 设置有效期后 autoRefresh 在有效期内不加载。
      *
      * @param key
      */
     public void setLastUpdateTimeKey(String key) {
+        if (TextUtils.isEmpty(key)) {
+            return;
+        }
+        mLastUpdateTimeKey = key;
+        setFreshnessKey(key);
         if (mPtrClassicHeader != null) {
             mPtrClassicHeader.setLastUpdateTimeKey(key);
         }
@@ -51,8 +90,6 @@ public class ClassicRefreshLayout extends RefreshLayout {
      * @param object
      */
     public void setLastUpdateTimeRelateObject(Object object) {
-        if (mPtrClassicHeader != null) {
-            mPtrClassicHeader.setLastUpdateTimeRelateObject(object);
-        }
+        setLastUpdateTimeKey(object.getClass().getName());
     }
 }
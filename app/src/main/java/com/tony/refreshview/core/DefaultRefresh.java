@@ -40,4 +40,12 @@ public abstract class DefaultRefresh implements Refresh {
     public boolean canRefresh(RefreshLayout refreshLayout, View header, View content) {
         return checkContentCanBePulledDown(refreshLayout, header, content);
     }
+
+    /**
+     * 默认什么都不做，{@link AsyncRefresh} 用返回的任务加载，不需要实现。
+     * 其他子类需要重写，在这里开始加载并在结束时调用 {@link RefreshLayout#refreshComplete()}
+     */
+    @Override
+    public void onRefreshBegin(RefreshLayout refreshLayout) {
+    }
 }
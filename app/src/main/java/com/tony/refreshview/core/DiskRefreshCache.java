@@ -0,0 +1,229 @@
+package com.tony.refreshview.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按最近使用淘汰的磁盘缓存，目录中所有文件的总字节数不超过 maxBytes。
+ * <p/>
+ * 每条数据一个文件，文件名是 key 的 MD5；先写临时文件再重命名，写到一半被杀不会留下损坏的数据。
+ * 使用顺序记在内存里，并同步到文件的修改时间，重启后按修改时间恢复。
+ * <p/>
+ * 所有方法都有磁盘 I/O，只能在后台线程调用。
+ */
+public class DiskRefreshCache<V> implements RefreshCache<V> {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * 数据和字节之间的转换
+     */
+    public interface Codec<V> {
+        byte[] encode(V value);
+
+        /**
+         * @return 数据损坏时返回 null
+         */
+        V decode(byte[] bytes);
+    }
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final Codec<V> mCodec;
+    //文件名 -> 文件大小，按使用顺序排列，第一次访问时从目录加载
+    private LinkedHashMap<String, Long> mEntries;
+    private long mSize;
+
+    public DiskRefreshCache(File directory, long maxBytes, Codec<V> codec) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mCodec = codec;
+    }
+
+    @Override
+    public synchronized V get(String key) {
+        ensureEntries();
+        final String name = fileName(key);
+        if (mEntries.get(name) == null) {
+            return null;
+        }
+        final File file = new File(mDirectory, name);
+        final byte[] bytes;
+        try {
+            bytes = readFully(file);
+        } catch (IOException e) {
+            removeFile(name);
+            return null;
+        }
+        final V value = mCodec.decode(bytes);
+        if (value == null) {
+            removeFile(name);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return value;
+    }
+
+    @Override
+    public synchronized void put(String key, V value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        ensureEntries();
+        final byte[] bytes = mCodec.encode(value);
+        if (bytes == null || bytes.length > mMaxBytes) {
+            remove(key);
+            return;
+        }
+        final String name = fileName(key);
+        final File temp = new File(mDirectory, name + TEMP_SUFFIX);
+        final File file = new File(mDirectory, name);
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.write(bytes);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                throw new IOException("rename failed: " + file);
+            }
+        } catch (IOException e) {
+            closeQuietly(out);
+            temp.delete();
+            return;
+        }
+        final Long previous = mEntries.put(name, (long) bytes.length);
+        if (previous != null) {
+            mSize -= previous;
+        }
+        mSize += bytes.length;
+        trimToSize();
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        ensureEntries();
+        removeFile(fileName(key));
+    }
+
+    /**
+     * @return 当前占用的字节数
+     */
+    public synchronized long size() {
+        ensureEntries();
+        return mSize;
+    }
+
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    private void removeFile(String name) {
+        final Long size = mEntries.remove(name);
+        if (size != null) {
+            mSize -= size;
+        }
+        new File(mDirectory, name).delete();
+    }
+
+    private void trimToSize() {
+        final Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            mSize -= eldest.getValue();
+            iterator.remove();
+            new File(mDirectory, eldest.getKey()).delete();
+        }
+    }
+
+    private void ensureEntries() {
+        if (mEntries != null) {
+            return;
+        }
+        mEntries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        mSize = 0;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            return;
+        }
+        final File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                final long l = lhs.lastModified();
+                final long r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                //上次没写完
+                file.delete();
+                continue;
+            }
+            mEntries.put(file.getName(), file.length());
+            mSize += file.length();
+        }
+        trimToSize();
+    }
+
+    private static String fileName(String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            final char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = Character.forDigit((digest[i] >> 4) & 0xf, 16);
+                hex[i * 2 + 1] = Character.forDigit(digest[i] & 0xf, 16);
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
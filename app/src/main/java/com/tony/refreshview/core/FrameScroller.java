@@ -0,0 +1,144 @@
+package com.tony.refreshview.core;
+
+/**
+ * 按帧时间戳计算滚动位置，不依赖 Android，便于在 JVM 上回放测试。
+ * <p/>
+ * 与 {@link android.widget.Scroller} 不同，位置完全由帧时间决定：同一帧无论被回调几次，得到的位置都一样，
+ * 掉帧时下一帧直接跳到正确的位置，而不是按回调次数累加。
+ */
+public class FrameScroller {
+    //默认曲线
+    public static final int CURVE_VISCOUS_FLUID = 0;
+    //减速曲线，起始斜率为 2，用来衔接松手时的速度
+    public static final int CURVE_DECELERATE = 1;
+    //速度不足以衔接，用默认曲线
+    public static final int NO_FLING = -1;
+
+    private static final long NANOS_PER_MS = 1000000L;
+
+    // 与 Scroller 默认插值器一致的粘滞流体曲线
+    private static final float VISCOUS_FLUID_SCALE = 8.0f;
+    private static final float VISCOUS_FLUID_NORMALIZE;
+    private static final float VISCOUS_FLUID_OFFSET;
+
+    static {
+        VISCOUS_FLUID_NORMALIZE = 1.0f / viscousFluid(1.0f);
+        VISCOUS_FLUID_OFFSET = 1.0f - VISCOUS_FLUID_NORMALIZE * viscousFluid(1.0f);
+    }
+
+    private int mStart;
+    private int mDistance;
+    private long mStartTimeNanos;
+    private long mDurationNanos;
+    private boolean mFinished = true;
+    private int mCurrentPos;
+    private int mCurve = CURVE_VISCOUS_FLUID;
+
+    /**
+     * 开始一次滚动
+     *
+     * @param start          起点
+     * @param distance       滚动距离
+     * @param duration       时长，单位 ms
+     * @param startTimeNanos 开始时间，与 {@link System#nanoTime()} 同一时钟
+     */
+    public void start(int start, int distance, int duration, long startTimeNanos) {
+        start(start, distance, duration, startTimeNanos, CURVE_VISCOUS_FLUID);
+    }
+
+    /**
+     * 开始一次滚动
+     *
+     * @param curve {@link #CURVE_VISCOUS_FLUID} 或 {@link #CURVE_DECELERATE}
+     */
+    public void start(int start, int distance, int duration, long startTimeNanos, int curve) {
+        mCurve = curve;
+        mStart = start;
+        mDistance = distance;
+        mStartTimeNanos = startTimeNanos;
+        mDurationNanos = Math.max(duration, 0) * NANOS_PER_MS;
+        mCurrentPos = start;
+        mFinished = false;
+    }
+
+    /**
+     * 按起始速度计算 {@link #CURVE_DECELERATE} 的时长。速度方向与滚动方向一致并且超过 minVelocity 时，
+     * 让曲线的起始速度等于 velocity：减速曲线的起始斜率为 2，duration = 2 * distance / velocity，
+     * 结果限制在 minDuration 和 maxDuration 之间。
+     *
+     * @param distance 滚动距离
+     * @param velocity 起始速度，单位 px/s
+     * @return 时长，单位 ms；速度不够或方向相反时返回 {@link #NO_FLING}
+     */
+    public static int computeFlingDuration(int distance, float velocity, float minVelocity, int minDuration, int maxDuration) {
+        if (distance == 0 || Math.abs(velocity) <= minVelocity || (distance > 0) != (velocity > 0)) {
+            return NO_FLING;
+        }
+        final int duration = (int) (2000f * Math.abs(distance) / Math.abs(velocity));
+        return Math.max(minDuration, Math.min(duration, maxDuration));
+    }
+
+    /**
+     * 根据帧时间计算当前位置
+     *
+     * @param frameTimeNanos 帧时间
+     * @return 滚动是否还未结束
+     */
+    public boolean computePosition(long frameTimeNanos) {
+        if (mFinished) {
+            return false;
+        }
+        long elapsed = frameTimeNanos - mStartTimeNanos;
+        if (elapsed < 0) {
+            //帧开始于滚动请求之前
+            elapsed = 0;
+        }
+        if (elapsed >= mDurationNanos) {
+            mCurrentPos = mStart + mDistance;
+            mFinished = true;
+        } else {
+            float input = elapsed * 1f / mDurationNanos;
+            mCurrentPos = mStart + Math.round(interpolate(input) * mDistance);
+        }
+        return true;
+    }
+
+    public int getCurrentPos() {
+        return mCurrentPos;
+    }
+
+    public int getFinalPos() {
+        return mStart + mDistance;
+    }
+
+    public boolean isFinished() {
+        return mFinished;
+    }
+
+    public void forceFinished() {
+        mFinished = true;
+    }
+
+    protected float interpolate(float input) {
+        if (mCurve == CURVE_DECELERATE) {
+            return 1.0f - (1.0f - input) * (1.0f - input);
+        }
+        final float interpolated = VISCOUS_FLUID_NORMALIZE * viscousFluid(input);
+        if (interpolated > 0) {
+            return interpolated + VISCOUS_FLUID_OFFSET;
+        }
+        return interpolated;
+    }
+
+    private static float viscousFluid(float x) {
+        x *= VISCOUS_FLUID_SCALE;
+        if (x < 1.0f) {
+            x -= (1.0f - (float) Math.exp(-x));
+        } else {
+            float start = 0.36787944117f;   // 1/e == exp(-1)
+            x = 1.0f - (float) Math.exp(1.0f - x);
+            x = start + x * (1.0f - start);
+        }
+        return x;
+    }
+}
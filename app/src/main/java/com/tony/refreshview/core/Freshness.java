@@ -0,0 +1,23 @@
+package com.tony.refreshview.core;
+
+/**
+ * 数据的有效期，{@link RefreshEngine} 用它判断 autoRefresh 是否需要加载。不依赖 Android，可以在单元测试中替换。
+ *
+ * @see LastUpdateTimeStore
+ */
+public interface Freshness {
+    /**
+     * @param key
+     * @param now 当前时间，毫秒
+     * @return 数据是否还在有效期内
+     */
+    boolean isFresh(String key, long now);
+
+    /**
+     * 加载成功，记录这个 key 的最后更新时间
+     *
+     * @param key
+     * @param now 当前时间，毫秒
+     */
+    void record(String key, long now);
+}
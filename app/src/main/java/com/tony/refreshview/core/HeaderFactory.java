@@ -0,0 +1,17 @@
+package com.tony.refreshview.core;
+
+import android.view.View;
+
+/**
+ * 懒加载时创建 Header，见 {@link RefreshLayout#setHeaderFactory(HeaderFactory, int)}
+ */
+public interface HeaderFactory {
+    /**
+     * 在第一次需要显示 Header 时调用，只会调用一次。
+     * 需要接收刷新回调的 Header 在这里通过 {@link RefreshLayout#addPtrUIHandler(UIRefresh)} 注册。
+     *
+     * @param refreshLayout
+     * @return Header
+     */
+    View createHeader(RefreshLayout refreshLayout);
+}
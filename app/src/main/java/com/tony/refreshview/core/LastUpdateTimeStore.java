@@ -0,0 +1,245 @@
+package com.tony.refreshview.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最后更新时间的存储。
+ * <p/>
+ * 读写都只访问内存缓存，磁盘读写全部在后台线程：创建时在后台预加载全部数据，
+ * 写入先放进内存，再合并成一次后台写盘。刷新完成的那一帧不会有任何磁盘 I/O。
+ * <p/>
+ * 每个 key 可以设置有效期（TTL），{@link RefreshLayout#autoRefresh()} 在有效期内不会加载，
+ * 命中和未命中的次数用来调整有效期。
+ */
+public class LastUpdateTimeStore implements Freshness {
+    public final static String KEY_SharedPreferences = "cube_ptr_classic_last_update";
+
+    /**
+     * 持久化的实现，load 和 save 只会在后台线程调用
+     */
+    public interface Storage {
+        Map<String, Long> load();
+
+        void save(Map<String, Long> values);
+    }
+
+    private static LastUpdateTimeStore sInstance;
+
+    private final Storage mStorage;
+    private final Executor mExecutor;
+    private final ConcurrentHashMap<String, Long> mCache = new ConcurrentHashMap<String, Long>();
+    private final HashMap<String, Long> mPending = new HashMap<String, Long>();
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean(false);
+    private volatile boolean mLoaded = false;//预加载是否完成
+    //有效期不持久化，每次启动时由应用设置
+    private final ConcurrentHashMap<String, Long> mTtls = new ConcurrentHashMap<String, Long>();
+    private final ConcurrentHashMap<String, AtomicLong> mFreshHits = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentHashMap<String, AtomicLong> mFreshMisses = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final Runnable mFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            mFlushScheduled.set(false);
+            final Map<String, Long> values;
+            synchronized (mPending) {
+                if (mPending.isEmpty()) {
+                    return;
+                }
+                values = new HashMap<String, Long>(mPending);
+                mPending.clear();
+            }
+            mStorage.save(values);
+        }
+    };
+
+    public static synchronized LastUpdateTimeStore getInstance(Context context) {
+        if (sInstance == null) {
+            ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RefreshLayout-LastUpdateTime");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+            sInstance = new LastUpdateTimeStore(new SharedPreferencesStorage(context.getApplicationContext()), executor);
+        }
+        return sInstance;
+    }
+
+    public LastUpdateTimeStore(Storage storage, Executor executor) {
+        mStorage = storage;
+        mExecutor = executor;
+        //预加载，单线程的 executor 保证之后的写盘在加载之后
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<String, Long> values = mStorage.load();
+                if (values != null) {
+                    for (Map.Entry<String, Long> entry : values.entrySet()) {
+                        //内存中已经有的是更新的值
+                        mCache.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                }
+                mLoaded = true;
+            }
+        });
+    }
+
+    /**
+     * @param key
+     * @return 最后更新时间，没有记录或者还没有加载完时返回 -1
+     */
+    public long get(String key) {
+        Long time = mCache.get(key);
+        return time == null ? -1 : time;
+    }
+
+    /**
+     * @return 预加载是否已经完成，完成之前 {@link #get(String)} 返回 -1 不代表没有记录
+     */
+    public boolean isLoaded() {
+        return mLoaded;
+    }
+
+    public void put(String key, long time) {
+        mCache.put(key, time);
+        synchronized (mPending) {
+            mPending.put(key, time);
+        }
+        if (mFlushScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(mFlushTask);
+        }
+    }
+
+    /**
+     * @param key
+     * @param ttl 毫秒，最后更新时间在这之内的数据认为是新的。不大于 0 时取消有效期
+     */
+    public void setTtl(String key, long ttl) {
+        if (ttl > 0) {
+            mTtls.put(key, ttl);
+        } else {
+            mTtls.remove(key);
+        }
+    }
+
+    /**
+     * @param key
+     * @return 有效期，没有设置时返回 0
+     */
+    public long getTtl(String key) {
+        Long ttl = mTtls.get(key);
+        return ttl == null ? 0 : ttl;
+    }
+
+    /**
+     * 判断数据是否还在有效期内，并计入命中或未命中。没有设置有效期的 key 总是返回 false，也不计数。
+     * 预加载还没完成、这次启动也没有写入过时不知道是否有效，按过期处理但不计入未命中，不会阻塞等待磁盘。
+     *
+     * @param key
+     * @param now 当前时间，毫秒
+     */
+    public boolean checkFresh(String key, long now) {
+        final long ttl = getTtl(key);
+        if (ttl <= 0) {
+            return false;
+        }
+        final long time = get(key);
+        if (time == -1 && !mLoaded) {
+            return false;
+        }
+        //没有记录，或者系统时间被往回调过
+        final boolean fresh = time != -1 && now >= time && now - time < ttl;
+        increment(fresh ? mFreshHits : mFreshMisses, key);
+        return fresh;
+    }
+
+    @Override
+    public boolean isFresh(String key, long now) {
+        return checkFresh(key, now);
+    }
+
+    @Override
+    public void record(String key, long now) {
+        put(key, now);
+    }
+
+    /**
+     * @return 在有效期内跳过加载的次数
+     */
+    public long getFreshHitCount(String key) {
+        AtomicLong count = mFreshHits.get(key);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return 已经过期需要加载的次数
+     */
+    public long getFreshMissCount(String key) {
+        AtomicLong count = mFreshMisses.get(key);
+        return count == null ? 0 : count.get();
+    }
+
+    public void resetFreshCounts() {
+        mFreshHits.clear();
+        mFreshMisses.clear();
+    }
+
+    private static void increment(ConcurrentHashMap<String, AtomicLong> counts, String key) {
+        AtomicLong count = counts.get(key);
+        if (count == null) {
+            AtomicLong created = new AtomicLong();
+            count = counts.putIfAbsent(key, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private static class SharedPreferencesStorage implements Storage {
+        private final Context mContext;
+
+        SharedPreferencesStorage(Context context) {
+            mContext = context;
+        }
+
+        private SharedPreferences getSharedPreferences() {
+            return mContext.getSharedPreferences(KEY_SharedPreferences, 0);
+        }
+
+        @Override
+        public Map<String, Long> load() {
+            Map<String, ?> all = getSharedPreferences().getAll();
+            Map<String, Long> values = new HashMap<String, Long>(all.size());
+            for (Map.Entry<String, ?> entry : all.entrySet()) {
+                if (entry.getValue() instanceof Long) {
+                    values.put(entry.getKey(), (Long) entry.getValue());
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void save(Map<String, Long> values) {
+            SharedPreferences.Editor editor = getSharedPreferences().edit();
+            for (Map.Entry<String, Long> entry : values.entrySet()) {
+                editor.putLong(entry.getKey(), entry.getValue());
+            }
+            editor.commit();
+        }
+    }
+}
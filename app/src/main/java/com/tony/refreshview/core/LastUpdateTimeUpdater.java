@@ -0,0 +1,145 @@
+package com.tony.refreshview.core;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.view.View;
+
+import com.tony.refreshview.R;
+
+/**
+ * Header 中"最后更新时间"文字的共用实现：从 {@link LastUpdateTimeStore} 读取时间，用 {@link RelativeTimeFormatter} 格式化，
+ * 下拉过程中在文字下一次变化的时候更新，刷新完成时记录新的时间。
+ * <p/>
+ * 定时任务 post 在 host View 上，host 离开窗口时需要调用 {@link #stop()}。只在 UI 线程使用。
+ */
+class LastUpdateTimeUpdater implements Runnable {
+
+    /**
+     * 文字或者可见性变化
+     */
+    interface Callback {
+        /**
+         * @param visible     是否显示
+         * @param textChanged 文字是否变化，变化时从 {@link #getText()} 读取
+         */
+        void onLastUpdateTimeChanged(boolean visible, boolean textChanged);
+    }
+
+    private final View mHost;
+    private final Callback mCallback;
+    private final LastUpdateTimeStore mStore;
+    private final RelativeTimeFormatter mFormatter;
+    private String mKey;
+    private boolean mShouldShow;
+    private long mLastUpdateTime = -1;
+    private boolean mVisible;
+    private boolean mRunning = false;
+
+    LastUpdateTimeUpdater(View host, Callback callback) {
+        mHost = host;
+        mCallback = callback;
+        final Context context = host.getContext();
+        //尽早开始在后台加载最后更新时间
+        mStore = LastUpdateTimeStore.getInstance(context);
+        mFormatter = new RelativeTimeFormatter(context.getString(R.string.cube_ptr_last_update),
+                context.getString(R.string.cube_ptr_seconds_ago),
+                context.getString(R.string.cube_ptr_minutes_ago),
+                context.getString(R.string.cube_ptr_hours_ago));
+    }
+
+    void setKey(String key) {
+        if (TextUtils.isEmpty(key)) {
+            return;
+        }
+        mKey = key;
+    }
+
+    boolean isVisible() {
+        return mVisible;
+    }
+
+    char[] getText() {
+        return mFormatter.getText();
+    }
+
+    int getTextLength() {
+        return mFormatter.getTextLength();
+    }
+
+    /**
+     * 刷新中不显示，其他状态显示
+     */
+    void setShouldShow(boolean show) {
+        mShouldShow = show;
+        update();
+    }
+
+    void start() {
+        if (TextUtils.isEmpty(mKey)) {
+            return;
+        }
+        mRunning = true;
+        run();
+    }
+
+    void stop() {
+        mRunning = false;
+        mHost.removeCallbacks(this);
+    }
+
+    /**
+     * 刷新完成，记录新的最后更新时间，在后台写盘。
+     * key 和 layout 的 {@link RefreshLayout#getFreshnessKey()} 相同时 layout 已经记录过，只读取
+     */
+    void onRefreshComplete(RefreshLayout layout) {
+        if (TextUtils.isEmpty(mKey)) {
+            return;
+        }
+        if (mKey.equals(layout.getFreshnessKey())) {
+            mLastUpdateTime = mStore.get(mKey);
+            return;
+        }
+        mLastUpdateTime = System.currentTimeMillis();
+        mStore.put(mKey, mLastUpdateTime);
+    }
+
+    void update() {
+        final boolean visible = mVisible;
+        boolean textChanged = false;
+        if (TextUtils.isEmpty(mKey) || !mShouldShow) {
+            mVisible = false;
+        } else {
+            if (mLastUpdateTime == -1) {
+                mLastUpdateTime = mStore.get(mKey);
+            }
+            switch (mFormatter.format(mLastUpdateTime, System.currentTimeMillis())) {
+                case RelativeTimeFormatter.RESULT_EMPTY:
+                    mVisible = false;
+                    break;
+                case RelativeTimeFormatter.RESULT_CHANGED:
+                    mVisible = true;
+                    textChanged = true;
+                    break;
+                default:
+                    mVisible = true;
+                    break;
+            }
+        }
+        if (textChanged || visible != mVisible) {
+            mCallback.onLastUpdateTimeChanged(mVisible, textChanged);
+        }
+    }
+
+    @Override
+    public void run() {
+        update();
+        if (!mRunning) {
+            return;
+        }
+        //在文字下一次变化的时候再更新，而不是每秒一次
+        final long delay = mLastUpdateTime == -1 ? 1000 : mFormatter.getNextChangeDelay();//-1 时可能还在后台加载
+        if (delay != RelativeTimeFormatter.NEVER) {
+            mHost.postDelayed(this, delay);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.tony.refreshview.core;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+import com.tony.refreshview.R;
+import com.tony.refreshview.indicator.RefreshIndicator;
+
+/**
+ * 轻量的 Header，效果和 {@link ClassicRefreshHeader} 一样，但只有一个 View。
+ * <p/>
+ * 箭头、进度圈和两行文字都直接画在 Canvas 上，不需要 inflate 布局，也没有子 View 的 measure/layout，
+ * 箭头的翻转和进度圈的旋转由 onDraw 按时间计算，不创建 Animation。
+ * <p/>
+ * 使用方式：
+ * <pre>
+ * LightRefreshHeader header = new LightRefreshHeader(context);
+ * refreshLayout.setHeaderView(header);
+ * refreshLayout.addPtrUIHandler(header);
+ * </pre>
+ */
+public class LightRefreshHeader extends View implements UIRefresh {
+    private static final int TITLE_COLOR = 0xff666666;
+    private static final int LAST_UPDATE_COLOR = 0xff999999;
+    private static final int PROGRESS_ROUND_TIME = 1000;
+
+    private int mRotateAniTime = 150;
+
+    private final Paint mTitlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mLastUpdatePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mIconPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path mArrowPath = new Path();
+    private final RectF mProgressRect = new RectF();
+    private final Paint.FontMetrics mTitleMetrics = new Paint.FontMetrics();
+    private final Paint.FontMetrics mLastUpdateMetrics = new Paint.FontMetrics();
+
+    private int mHeaderHeight;
+    private float mTextBoxWidth;
+    private float mIconSize;
+    private float mIconMarginRight;
+    private float mLastUpdateMarginTop;
+
+    //提前取好的文字
+    private String mPullDown;
+    private String mPullDownToRefresh;
+    private String mReleaseToRefresh;
+    private String mRefreshing;
+    private String mRefreshComplete;
+
+    private String mTitle;
+    private boolean mTitleVisible;
+    private boolean mRotateViewVisible;
+    private boolean mProgressBarVisible;
+
+    //箭头翻转，相当于 fillAfter 的 RotateAnimation
+    private float mArrowFromDegrees;
+    private float mArrowToDegrees;
+    private long mArrowAnimStartTime = -1;
+
+    private LastUpdateTimeUpdater mLastUpdateTimeUpdater;
+
+    public LightRefreshHeader(Context context) {
+        super(context);
+        initViews(null);
+    }
+
+    public LightRefreshHeader(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        initViews(attrs);
+    }
+
+    public LightRefreshHeader(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        initViews(attrs);
+    }
+
+    private void initViews(AttributeSet attrs) {
+        TypedArray arr = getContext().obtainStyledAttributes(attrs, R.styleable.ClassicHeader, 0, 0);
+        if (arr != null) {
+            mRotateAniTime = arr.getInt(R.styleable.ClassicHeader_rotate_ani_time, mRotateAniTime);
+            arr.recycle();
+        }
+        mLastUpdateTimeUpdater = new LastUpdateTimeUpdater(this, new LastUpdateTimeUpdater.Callback() {
+            @Override
+            public void onLastUpdateTimeChanged(boolean visible, boolean textChanged) {
+                invalidate();
+            }
+        });
+        mPullDown = getContext().getString(R.string.cube_ptr_pull_down);
+        mPullDownToRefresh = getContext().getString(R.string.cube_ptr_pull_down_to_refresh);
+        mReleaseToRefresh = getContext().getString(R.string.cube_ptr_release_to_refresh);
+        mRefreshing = getContext().getString(R.string.cube_ptr_refreshing);
+        mRefreshComplete = getContext().getString(R.string.cube_ptr_refresh_complete);
+
+        //尺寸和 cube_ptr_classic_default_header.xml 一致
+        mHeaderHeight = getResources().getDimensionPixelSize(R.dimen.cube_ptr_classic_header_height);
+        mTextBoxWidth = dp(150);
+        mIconSize = dp(16);
+        mIconMarginRight = dp(10);
+        mLastUpdateMarginTop = dp(2);
+
+        mTitlePaint.setColor(TITLE_COLOR);
+        mTitlePaint.setTextSize(sp(12));
+        mTitlePaint.setTextAlign(Paint.Align.CENTER);
+        mLastUpdatePaint.setColor(LAST_UPDATE_COLOR);
+        mLastUpdatePaint.setTextSize(sp(10));
+        mLastUpdatePaint.setTextAlign(Paint.Align.CENTER);
+        mTitlePaint.getFontMetrics(mTitleMetrics);
+        mLastUpdatePaint.getFontMetrics(mLastUpdateMetrics);
+        mIconPaint.setColor(LAST_UPDATE_COLOR);
+        mIconPaint.setStrokeWidth(dp(2));
+        mIconPaint.setStrokeCap(Paint.Cap.ROUND);
+        mIconPaint.setStrokeJoin(Paint.Join.ROUND);
+        mIconPaint.setStyle(Paint.Style.STROKE);
+
+        //向下的箭头，以中心为原点
+        final float half = mIconSize / 2;
+        mArrowPath.moveTo(0, -half);
+        mArrowPath.lineTo(0, half);
+        mArrowPath.moveTo(-half * 0.6f, half * 0.4f);
+        mArrowPath.lineTo(0, half);
+        mArrowPath.lineTo(half * 0.6f, half * 0.4f);
+
+        resetView();
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+    }
+
+    private float sp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, value, getResources().getDisplayMetrics());
+    }
+
+    private void resetView() {
+        hideRotateView();
+        mProgressBarVisible = false;
+        invalidate();
+    }
+
+    private void hideRotateView() {
+        mArrowAnimStartTime = -1;
+        mArrowFromDegrees = mArrowToDegrees = 0;
+        mRotateViewVisible = false;
+        invalidate();
+    }
+
+    private void startArrowAnimation(float fromDegrees, float toDegrees) {
+        mArrowFromDegrees = fromDegrees;
+        mArrowToDegrees = toDegrees;
+        mArrowAnimStartTime = AnimationUtils.currentAnimationTimeMillis();
+        invalidate();
+    }
+
+    private void setTitle(String title) {
+        mTitleVisible = true;
+        mTitle = title;
+        invalidate();
+    }
+
+    /**
+     * Specify the last update time by this key string
+     *
+     * @param key
+     */
+    public void setLastUpdateTimeKey(String key) {
+        mLastUpdateTimeUpdater.setKey(key);
+    }
+
+    public void setRotateAniTime(int time) {
+        if (time == mRotateAniTime || time == 0) {
+            return;
+        }
+        mRotateAniTime = time;
+    }
+
+    /**
+     * Using an object to specify the last update time.
+     *
+     * @param object
+     */
+    public void setLastUpdateTimeRelateObject(Object object) {
+        setLastUpdateTimeKey(object.getClass().getName());
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(mHeaderHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final float centerX = getWidth() / 2f;
+        final float centerY = getHeight() / 2f;
+
+        //两行文字作为一个整体垂直居中
+        final Paint.FontMetrics titleMetrics = mTitleMetrics;
+        final Paint.FontMetrics lastUpdateMetrics = mLastUpdateMetrics;
+        final float titleHeight = mTitleVisible ? titleMetrics.descent - titleMetrics.ascent : 0;
+        final boolean lastUpdateVisible = mLastUpdateTimeUpdater.isVisible();
+        final float lastUpdateHeight = lastUpdateVisible
+                ? mLastUpdateMarginTop + lastUpdateMetrics.descent - lastUpdateMetrics.ascent : 0;
+        float top = centerY - (titleHeight + lastUpdateHeight) / 2;
+        if (mTitleVisible && mTitle != null) {
+            canvas.drawText(mTitle, centerX, top - titleMetrics.ascent, mTitlePaint);
+            top += titleHeight;
+        }
+        if (lastUpdateVisible) {
+            canvas.drawText(mLastUpdateTimeUpdater.getText(), 0, mLastUpdateTimeUpdater.getTextLength(),
+                    centerX, top + mLastUpdateMarginTop - lastUpdateMetrics.ascent, mLastUpdatePaint);
+        }
+
+        final float iconCenterX = centerX - mTextBoxWidth / 2 - mIconMarginRight - mIconSize / 2;
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        boolean animating = false;
+        if (mRotateViewVisible) {
+            float degrees = mArrowToDegrees;
+            if (mArrowAnimStartTime != -1) {
+                final float progress = mRotateAniTime <= 0 ? 1 : (now - mArrowAnimStartTime) / (float) mRotateAniTime;
+                if (progress < 1) {
+                    degrees = mArrowFromDegrees + (mArrowToDegrees - mArrowFromDegrees) * progress;
+                    animating = true;
+                } else {
+                    mArrowAnimStartTime = -1;
+                }
+            }
+            canvas.save();
+            canvas.translate(iconCenterX, centerY);
+            canvas.rotate(degrees);
+            canvas.drawPath(mArrowPath, mIconPaint);
+            canvas.restore();
+        }
+        if (mProgressBarVisible) {
+            final float radius = mIconSize / 2;
+            mProgressRect.set(iconCenterX - radius, centerY - radius, iconCenterX + radius, centerY + radius);
+            final float startAngle = (now % PROGRESS_ROUND_TIME) * 360f / PROGRESS_ROUND_TIME;
+            canvas.drawArc(mProgressRect, startAngle, 270, false, mIconPaint);
+            animating = true;
+        }
+        if (animating) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void onUIReset(RefreshLayout refreshLayout) {
+        resetView();
+        mLastUpdateTimeUpdater.setShouldShow(true);
+    }
+
+    @Override
+    public void onUIRefreshPrepare(RefreshLayout refreshLayout) {
+        mLastUpdateTimeUpdater.setShouldShow(true);
+        mLastUpdateTimeUpdater.start();
+
+        mProgressBarVisible = false;
+        mRotateViewVisible = true;
+        setTitle(refreshLayout.isPullToRefresh() ? mPullDownToRefresh : mPullDown);
+    }
+
+    @Override
+    public void onUIRefreshBegin(RefreshLayout refreshLayout) {
+        hideRotateView();
+        mProgressBarVisible = true;
+        setTitle(mRefreshing);
+
+        mLastUpdateTimeUpdater.setShouldShow(false);
+        mLastUpdateTimeUpdater.stop();
+    }
+
+    @Override
+    public void onUIRefreshComplete(RefreshLayout refreshLayout) {
+        hideRotateView();
+        mProgressBarVisible = false;
+        setTitle(mRefreshComplete);
+
+        // update last update time, written to disk in background
+        mLastUpdateTimeUpdater.onRefreshComplete(refreshLayout);
+    }
+
+    @Override
+    public void onUIPositionChange(RefreshLayout refreshLayout, boolean isUnderTouch, byte status, RefreshIndicator ptrIndicator) {
+        final int mOffsetToRefresh = refreshLayout.getOffsetToRefresh();
+        final int currentPos = ptrIndicator.getCurrentPosY();
+        final int lastPos = ptrIndicator.getLastPosY();
+
+        if (currentPos < mOffsetToRefresh && lastPos >= mOffsetToRefresh) {
+            if (isUnderTouch && status == RefreshLayout.REFRESH_STATUS_PREPARE) {
+                setTitle(refreshLayout.isPullToRefresh() ? mPullDownToRefresh : mPullDown);
+                startArrowAnimation(-180, 0);
+            }
+        } else if (currentPos > mOffsetToRefresh && lastPos <= mOffsetToRefresh) {
+            if (isUnderTouch && status == RefreshLayout.REFRESH_STATUS_PREPARE) {
+                if (!refreshLayout.isPullToRefresh()) {
+                    setTitle(mReleaseToRefresh);
+                }
+                startArrowAnimation(0, -180);
+            }
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mLastUpdateTimeUpdater != null) {
+            mLastUpdateTimeUpdater.stop();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.tony.refreshview.core;
+
+/**
+ * 加载更多功能接口，和 {@link Refresh} 一样由用户实现业务数据的加载。
+ */
+public interface LoadMore {
+    /**
+     * Content 滑到离底部 prefetch 距离以内时回调，用户在这里加载下一页，
+     * 结束后调用 {@link RefreshLayout#loadMoreComplete(boolean)}。
+     *
+     * @param refreshLayout
+     */
+    void onLoadMoreBegin(final RefreshLayout refreshLayout);
+}
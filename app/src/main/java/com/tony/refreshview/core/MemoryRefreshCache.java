@@ -0,0 +1,77 @@
+package com.tony.refreshview.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按最近使用淘汰的内存缓存，总大小不超过 maxSize。
+ * <p/>
+ * 默认每条数据大小为 1，即按条数限制；重写 {@link #sizeOf(String, Object)} 可以按字节等单位限制。
+ */
+public class MemoryRefreshCache<V> implements RefreshCache<V> {
+    private final LinkedHashMap<String, V> mMap = new LinkedHashMap<String, V>(16, 0.75f, true);
+    private final int mMaxSize;
+    private int mSize;
+
+    public MemoryRefreshCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        mMaxSize = maxSize;
+    }
+
+    @Override
+    public synchronized V get(String key) {
+        return mMap.get(key);
+    }
+
+    @Override
+    public synchronized void put(String key, V value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        final V previous = mMap.put(key, value);
+        if (previous != null) {
+            mSize -= sizeOf(key, previous);
+        }
+        mSize += sizeOf(key, value);
+        trimToSize(mMaxSize);
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        final V previous = mMap.remove(key);
+        if (previous != null) {
+            mSize -= sizeOf(key, previous);
+        }
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * 按最近最少使用的顺序淘汰，直到总大小不超过 maxSize
+     */
+    public synchronized void trimToSize(int maxSize) {
+        final Iterator<Map.Entry<String, V>> iterator = mMap.entrySet().iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            final Map.Entry<String, V> eldest = iterator.next();
+            mSize -= sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 同一条数据每次返回的大小必须相同
+     */
+    protected int sizeOf(String key, V value) {
+        return 1;
+    }
+}
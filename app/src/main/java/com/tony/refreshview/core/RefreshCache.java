@@ -0,0 +1,17 @@
+package com.tony.refreshview.core;
+
+/**
+ * {@link StaleWhileRevalidate} 使用的缓存，内存和磁盘各一个实现，也可以换成自己的实现。
+ * 实现需要线程安全。
+ */
+public interface RefreshCache<V> {
+    /**
+     * @param key
+     * @return 缓存的数据，没有时返回 null
+     */
+    V get(String key);
+
+    void put(String key, V value);
+
+    void remove(String key);
+}
@@ -0,0 +1,439 @@
+package com.tony.refreshview.core;
+
+import com.tony.refreshview.indicator.RefreshIndicator;
+
+/**
+ * 刷新的状态机：INIT -> PREPARE -> LOADING -> COMPLETE -> INIT。
+ * <p/>
+ * 不依赖 Android，只根据 {@link RefreshIndicator} 中的位置和触摸状态切换状态，
+ * 所有 UI 操作（回调 UIRefresh、滚动、延时）都通过 {@link Host} 交给容器完成。
+ * {@link RefreshLayout} 是它的一个容器，其他容器或者 JVM 上的测试也可以直接驱动它。
+ * <p/>
+ * 容器需要在以下时机通知引擎：
+ * <ul>
+ * <li>指示器的整数位置变化后调用 {@link #onPositionChange(boolean)}</li>
+ * <li>松手时调用 {@link #onRelease(boolean, float)}</li>
+ * <li>滚动结束或被中断时调用 {@link #onScrollFinish()} / {@link #onScrollAbort()}</li>
+ * <li>{@link Host#postRefreshComplete(long)} 的延时到了以后调用 {@link #performRefreshComplete()}</li>
+ * </ul>
+ * 非线程安全，只能在一个线程中使用。
+ */
+public class RefreshEngine {
+    //四种刷新状态
+    public final static byte STATUS_INIT = 1;
+    public final static byte STATUS_PREPARE = 2;
+    public final static byte STATUS_LOADING = 3;
+    public final static byte STATUS_COMPLETE = 4;
+
+    /**
+     * 引擎需要容器完成的操作
+     */
+    public interface Host {
+        void onUIReset();
+
+        void onUIRefreshPrepare();
+
+        /**
+         * 通知 UI 并开始真正的刷新
+         */
+        void onUIRefreshBegin();
+
+        void onUIRefreshComplete();
+
+        /**
+         * 刷新完成前执行 hook
+         *
+         * @return hook 是否接管，接管后由 hook 结束时调用 {@link #resumeRefreshComplete()}
+         */
+        boolean takeOverRefreshComplete();
+
+        /**
+         * 滚动到指定位置，结束或中断时回调 {@link #onScrollFinish()} / {@link #onScrollAbort()}
+         *
+         * @param to        目标位置
+         * @param duration  最长时长
+         * @param velocityY 起始速度，单位 px/s，0 表示没有速度
+         */
+        void scrollTo(int to, int duration, float velocityY);
+
+        boolean isScrolling();
+
+        long currentTimeMillis();
+
+        /**
+         * delayMillis 之后调用 {@link #performRefreshComplete()}
+         */
+        void postRefreshComplete(long delayMillis);
+    }
+
+    private final Host mHost;
+    private RefreshIndicator mIndicator;
+    private byte mStatus = STATUS_INIT;
+
+    private boolean isEnableContinueRefresh = false;
+    private boolean isAutoRefresh = false;
+    private boolean isAutoRefreshButLater = false;
+    private boolean mOverScrollingByFling = false;//内容 fling 到顶部转换成的头部回弹
+
+    private int mDurationToClose = 200;//回弹延时，默认200ms，回弹到刷新高度所用时间。
+    private int mDurationToCloseHeader = 500;//头部回弹时间，默认 800ms。
+    private boolean mKeepHeaderWhenRefresh = true;//刷新是否保持头部，默认值 true。
+    private boolean mPullToRefresh = false;//下拉刷新 / 释放刷新，默认为释放刷新。
+    private long mLoadingStartTime = 0;
+    private int mLoadingMinTime = 500;
+    //有效期内 autoRefresh 不加载，为空时总是加载
+    private Freshness mFreshness;
+    private String mFreshnessKey;
+    private boolean mLoadSucceeded = true;//这次加载是否成功，失败或取消时不记录最后更新时间
+
+    public RefreshEngine(Host host, RefreshIndicator indicator) {
+        mHost = host;
+        mIndicator = indicator;
+    }
+
+    public void setIndicator(RefreshIndicator indicator) {
+        mIndicator = indicator;
+    }
+
+    public byte getStatus() {
+        return mStatus;
+    }
+
+    /**
+     * 最后更新时间在有效期内时 autoRefresh 不开始。加载成功完成时由引擎记录这个 key 的最后更新时间，
+     * 失败或被取消的加载不记录。使用同一个 key 的 Header 只读取，不再重复写入。
+     *
+     * @param freshness
+     * @param key       为 null 时关闭
+     */
+    public void setFreshness(Freshness freshness, String key) {
+        mFreshness = freshness;
+        mFreshnessKey = freshness != null ? key : null;
+    }
+
+    public String getFreshnessKey() {
+        return mFreshnessKey;
+    }
+
+    /**
+     * 移动 deltaY 之后的精确位置，向上移动时停在顶部
+     *
+     * @param deltaY 向下为正
+     */
+    public float getMoveTarget(float deltaY) {
+        final float toExact = mIndicator.getCurrentPosExact() + deltaY;
+        return toExact < RefreshIndicator.POS_START ? RefreshIndicator.POS_START : toExact;
+    }
+
+    /**
+     * 更新指示器的位置，不足一个像素的部分留在指示器里累积，跨过整像素时整数位置才变化
+     *
+     * @param toExact {@link #getMoveTarget(float)} 的结果
+     * @return 整数位置的变化，不为 0 时容器移动 View 并调用 {@link #onPositionChange(boolean)}
+     */
+    public int moveTo(float toExact) {
+        mIndicator.setCurrentPosExact(toExact);
+        return mIndicator.getCurrentPosY() - mIndicator.getLastPosY();
+    }
+
+    /**
+     * 指示器的整数位置变化之后调用
+     *
+     * @param isTouch 是否由触摸引起
+     */
+    public void onPositionChange(boolean isTouch) {
+        // fling 回弹不是下拉，不进入 PREPARE；回弹中途被手指接住后再拖动才算开始下拉
+        final boolean leftStart = mIndicator.hasJustLeftStartPosition() || (isTouch && mIndicator.hasLeftStartPosition());
+        // leave initiated position or just refresh complete
+        if ((leftStart && mStatus == STATUS_INIT && !mOverScrollingByFling) || (mIndicator.goDownCrossFinishPosition() && mStatus == STATUS_COMPLETE && isEnableContinueRefresh())) {
+            //预备状态
+            mStatus = STATUS_PREPARE;
+            mHost.onUIRefreshPrepare();
+        }
+
+        // back to initiated position
+        if (mIndicator.hasJustBackToStartPosition()) {
+            //回到开始点　重置
+            notifyReset();
+        }
+
+        // Pull to Refresh
+        if (mStatus == STATUS_PREPARE) {
+            // reach fresh height while moving from top to bottom
+            if (isTouch && !isAutoRefresh() && mPullToRefresh && mIndicator.crossRefreshLineFromTopToBottom()) {
+                tryToPerformRefresh();
+            }
+            // reach header height while auto refresh
+            if (isAutoRefreshButLater && mIndicator.hasJustReachedHeaderHeightFromTopToBottom()) {
+                tryToPerformRefresh();
+            }
+        }
+    }
+
+    /**
+     * 释放头部
+     *
+     * @param stayForLoading 是否保持当前位置加载
+     * @param velocityY      松手时的速度，单位 px/s，向下为正，用来决定回弹的时长和曲线
+     */
+    public void onRelease(boolean stayForLoading, float velocityY) {
+        tryToPerformRefresh();
+        if (mStatus == STATUS_LOADING) {
+            // keep header for fresh
+            if (mKeepHeaderWhenRefresh) {
+                // scroll header back
+                if (mIndicator.isOverOffsetToKeepHeaderWhileLoading() && !stayForLoading) {
+                    mHost.scrollTo(mIndicator.getOffsetToKeepHeaderWhileLoading(), mDurationToClose, velocityY);
+                } else {
+                    // do nothing
+                }
+            } else {
+                scrollBackToTop(velocityY);
+            }
+        } else {
+            if (mStatus == STATUS_COMPLETE) {
+                notifyUIRefreshComplete(false);
+            } else {
+                scrollBackToTop(velocityY);
+            }
+        }
+    }
+
+    //尝试执行刷新　需要判断
+    private void tryToPerformRefresh() {
+        if (mStatus != STATUS_PREPARE) {
+            return;
+        }
+        if ((mIndicator.isOverOffsetToKeepHeaderWhileLoading() && isAutoRefresh()) || mIndicator.isOverOffsetToRefresh()) {
+            mStatus = STATUS_LOADING;
+            performRefresh();
+        }
+    }
+
+    /**
+     * 开始执行刷新
+     */
+    private void performRefresh() {
+        mLoadingStartTime = mHost.currentTimeMillis();
+        mHost.onUIRefreshBegin();
+    }
+
+    /**
+     * 滚回到顶部　没有触摸事件
+     */
+    private void scrollBackToTop(float velocityY) {
+        if (!mIndicator.isTouch()) {
+            mHost.scrollTo(RefreshIndicator.POS_START, mDurationToCloseHeader, velocityY);
+        }
+    }
+
+    /**
+     * 内容 fling 到顶部后把速度转换成头部的回弹，回弹不会触发刷新，也不回调 prepare / reset
+     *
+     * @param distance  回弹的距离
+     * @param velocityY 到达顶部时的速度
+     */
+    public void overScroll(int distance, float velocityY) {
+        if (mStatus != STATUS_INIT || mIndicator.isTouch() || distance <= 0) {
+            return;
+        }
+        mOverScrollingByFling = true;
+        mHost.scrollTo(distance, mDurationToClose, velocityY);
+    }
+
+    /**
+     * Do real refresh work. If there is a hook, execute the hook first.
+     *
+     * @param ignoreHook
+     */
+    private void notifyUIRefreshComplete(boolean ignoreHook) {
+        /**
+         * After hook operation is done, {@link #notifyUIRefreshComplete} will be call in resume action to ignore hook.
+         */
+        if (mIndicator.hasLeftStartPosition() && !ignoreHook && mHost.takeOverRefreshComplete()) {
+            return;
+        }
+        if (mFreshnessKey != null && mLoadSucceeded) {
+            mFreshness.record(mFreshnessKey, mHost.currentTimeMillis());
+        }
+        mHost.onUIRefreshComplete();
+        mIndicator.onUIRefreshComplete();
+        scrollBackToTop(0);
+        notifyReset();
+    }
+
+    /**
+     * hook 执行结束后继续完成刷新
+     */
+    public void resumeRefreshComplete() {
+        notifyUIRefreshComplete(true);
+    }
+
+    /**
+     * If at the top and not in loading, reset
+     */
+    private boolean notifyReset() {
+        if ((mStatus == STATUS_COMPLETE || mStatus == STATUS_PREPARE) && mIndicator.isInStartPosition()) {
+            mHost.onUIReset();
+            mStatus = STATUS_INIT;
+            clearFlag();
+            return true;
+        }
+        return false;
+    }
+
+    private void clearFlag() {
+        // remove auto fresh flag
+        isAutoRefresh = false;
+    }
+
+    /**
+     * 数据加载完成。加载时间不足 {@link #mLoadingMinTime} 时延时到最短时间再完成。
+     */
+    public void refreshComplete() {
+        refreshComplete(true);
+    }
+
+    /**
+     * @param succeeded 加载是否成功，失败或被取消时同样结束刷新，但不记录最后更新时间
+     */
+    public void refreshComplete(boolean succeeded) {
+        mLoadSucceeded = succeeded;
+        long delay = mLoadingMinTime - (mHost.currentTimeMillis() - mLoadingStartTime);
+        if (delay <= 0) {
+            performRefreshComplete();
+        } else {
+            mHost.postRefreshComplete(delay);
+        }
+    }
+
+    /**
+     * Do refresh complete work when time elapsed is greater than {@link #mLoadingMinTime}
+     */
+    public void performRefreshComplete() {
+        mStatus = STATUS_COMPLETE;
+
+        // if is auto refresh do nothing, wait scroller stop
+        if (mHost.isScrolling() && isAutoRefresh()) {
+            // do nothing
+            return;
+        }
+        notifyUIRefreshComplete(false);
+    }
+
+    public void onScrollFinish() {
+        if (mOverScrollingByFling) {
+            //回弹到最远处后收回
+            mOverScrollingByFling = false;
+            if (mStatus != STATUS_LOADING) {
+                mHost.scrollTo(RefreshIndicator.POS_START, mDurationToClose, 0);
+            }
+            return;
+        }
+        if (mIndicator.hasLeftStartPosition() && isAutoRefresh()) {
+            onRelease(true, 0);
+        }
+    }
+
+    public void onScrollAbort() {
+        mOverScrollingByFling = false;
+        if (mIndicator.hasLeftStartPosition() && isAutoRefresh()) {
+            onRelease(true, 0);
+        }
+    }
+
+    /**
+     * @param atOnce   是否立即开始刷新
+     * @param duration 滚动到刷新位置的时长
+     * @return 是否开始，不在 INIT 状态或者还在有效期内时返回 false
+     */
+    public boolean autoRefresh(boolean atOnce, int duration) {
+        return shouldAutoRefresh() && startAutoRefresh(atOnce, duration);
+    }
+
+    /**
+     * 是否可以开始 autoRefresh：在 INIT 状态，并且不在有效期内。有效期的判断计入命中或未命中，每次 autoRefresh 只调用一次
+     */
+    public boolean shouldAutoRefresh() {
+        if (mStatus != STATUS_INIT) {
+            return false;
+        }
+        return mFreshnessKey == null || !mFreshness.isFresh(mFreshnessKey, mHost.currentTimeMillis());
+    }
+
+    /**
+     * 不检查有效期直接开始，用于 {@link #shouldAutoRefresh()} 之后容器还需要先做准备的情况，例如创建 Header
+     *
+     * @return 是否开始，不在 INIT 状态时返回 false
+     */
+    public boolean startAutoRefresh(boolean atOnce, int duration) {
+        if (mStatus != STATUS_INIT) {
+            return false;
+        }
+        mStatus = STATUS_PREPARE;
+        mHost.onUIRefreshPrepare();
+        mHost.scrollTo(mIndicator.getOffsetToRefresh(), duration, 0);
+        if (atOnce) {
+            mStatus = STATUS_LOADING;
+            performRefresh();
+        }
+        return true;
+    }
+
+    public boolean isRefreshing() {
+        return mStatus == STATUS_LOADING;
+    }
+
+    //默认状态　自动调用刷新
+    public boolean isAutoRefresh() {
+        return this.isAutoRefresh;
+    }
+
+    public void enableContinueRefresh(boolean enable) {
+        this.isEnableContinueRefresh = enable;
+    }
+
+    public boolean isEnableContinueRefresh() {
+        return this.isEnableContinueRefresh;
+    }
+
+    public int getDurationToClose() {
+        return mDurationToClose;
+    }
+
+    public void setDurationToClose(int duration) {
+        mDurationToClose = duration;
+    }
+
+    public int getDurationToCloseHeader() {
+        return mDurationToCloseHeader;
+    }
+
+    public void setDurationToCloseHeader(int duration) {
+        mDurationToCloseHeader = duration;
+    }
+
+    public boolean isKeepHeaderWhenRefresh() {
+        return mKeepHeaderWhenRefresh;
+    }
+
+    public void setKeepHeaderWhenRefresh(boolean keepOrNot) {
+        mKeepHeaderWhenRefresh = keepOrNot;
+    }
+
+    public boolean isPullToRefresh() {
+        return mPullToRefresh;
+    }
+
+    public void setPullToRefresh(boolean pullToRefresh) {
+        mPullToRefresh = pullToRefresh;
+    }
+
+    public void setLoadingMinTime(int time) {
+        mLoadingMinTime = time;
+    }
+
+    public long getLoadingStartTime() {
+        return mLoadingStartTime;
+    }
+}
@@ -2,67 +2,154 @@ package com.tony.refreshview.core;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Rect;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.NestedScrollView;
+import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.widget.Scroller;
+import android.view.VelocityTracker;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+import android.widget.ScrollView;
 import android.widget.TextView;
 
 import com.tony.refreshview.R;
+import com.tony.refreshview.indicator.LoadMoreIndicator;
 import com.tony.refreshview.indicator.RefreshIndicator;
+import com.tony.refreshview.indicator.ResistanceCurve;
 
 /**
  * 通常情况下 Header 会实现 UIRefresh 接口， Content 可以为任意的 View。
+ * <p/>
+ * 开启嵌套滚动模式后，如果 Content 支持嵌套滚动（RecyclerView、NestedScrollView 等），
+ * 由 Content 把未消费的滚动交给 RefreshLayout，不再伪造 ACTION_CANCEL / ACTION_DOWN 事件；
+ * 其他 Content 仍然走 dispatchTouchEvent 拦截的方式。
  */
-public class RefreshLayout extends ViewGroup {
+public class RefreshLayout extends ViewGroup implements NestedScrollingParent, NestedScrollingChild {
     //四种刷新状态
-    public final static byte REFRESH_STATUS_INIT = 1;
-    public final static byte REFRESH_STATUS_PREPARE = 2;
-    public final static byte REFRESH_STATUS_LOADING = 3;
-    public final static byte REFRESH_STATUS_COMPLETE = 4;
-    private byte mStatus = REFRESH_STATUS_INIT;
+    public final static byte REFRESH_STATUS_INIT = RefreshEngine.STATUS_INIT;
+    public final static byte REFRESH_STATUS_PREPARE = RefreshEngine.STATUS_PREPARE;
+    public final static byte REFRESH_STATUS_LOADING = RefreshEngine.STATUS_LOADING;
+    public final static byte REFRESH_STATUS_COMPLETE = RefreshEngine.STATUS_COMPLETE;
+    //xml 中 resistance_curve 的取值
+    private final static int RESISTANCE_CURVE_NONE = 0;
+    private final static int RESISTANCE_CURVE_PROGRESSIVE = 1;
 
     //刷新状态记录指示器
     private RefreshIndicator mRefreshIndicator;
+    //状态机，RefreshLayout 只负责把触摸和位置交给它，并完成它要求的 UI 操作
+    private RefreshEngine mEngine;
     //两个view
     private View mHeaderView, mContentView;
+    //懒加载的 Header，创建之前按预留的高度计算
+    private HeaderFactory mHeaderFactory;
+    private int mLazyHeaderHeight;
 
     private boolean isPinContent = false;
-    private boolean isEnableContinueRefresh = false;
-    private boolean isAutoRefresh = false;
-    private boolean isAutoRefreshButLater = false;
 
     //xml
     private int mHeaderId = 0;//设置头部id
     private int mContentId = 0;//设置内容id
-    private int mDurationToClose = 200;//回弹延时，默认200ms，回弹到刷新高度所用时间。
-    private int mDurationToCloseHeader = 500;//头部回弹时间，默认 800ms。
-    private boolean mKeepHeaderWhenRefresh = true;//刷新是否保持头部，默认值 true。
-    private boolean mPullToRefresh = false;//下拉刷新 / 释放刷新，默认为释放刷新。
+    private boolean mConsumeHistoricalMoves = false;//一次处理 move 事件中批量的历史采样，默认关闭。
+    private boolean mNestedScrollMode = false;//嵌套滚动模式，默认关闭。
+    private boolean mTranslationMode = false;//拖动和动画中用 translationY 移动，停下后再布局，默认关闭。
 
     // working parameters
     private ScrollWrapper mScrollWrapper;
+    private AnimationDriver mAnimationDriver;
     private int mPagingTouchSlop;
+    private int mMinFlingVelocity;
+    private int mMaxFlingVelocity;
+    private VelocityTracker mVelocityTracker;
+
+    //嵌套滚动
+    private final NestedScrollingParentHelper mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
+    private final NestedScrollingChildHelper mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
+    private final int[] mParentScrollConsumed = new int[2];
+    private final int[] mParentOffsetInWindow = new int[2];
+    private boolean mNestedScrollInProgress = false;
+    private float mNestedReleaseVelocityY;//嵌套滚动松手时的速度
+    private float mNestedOverScrollVelocityY;//内容在顶部 fling 的速度，松手后转换成回弹
     private int mHeaderHeight;
-
-    private long mLoadingStartTime = 0;
+    //translation 模式下，header 和 content 最近一次真正布局时对应的位置
+    private int mLayoutPosY = 0;
+    private boolean mIsTranslating = false;
+    private boolean mIsTranslatingContent = false;
+    private int mHeaderLayerType;
+    private int mContentLayerType;
 
     private UIRefreshHook mRefreshCompleteHook;
-    private UIRefreshHolder mPtrUIHandlerHolder = UIRefreshHolder.create();
+    private final UIRefreshHolder mPtrUIHandlerHolder = UIRefreshHolder.create();
     private Refresh mRefresh;
+    //AsyncRefresh 的加载任务
+    private final RefreshTaskRunner mRefreshTaskRunner = new RefreshTaskRunner(new RefreshTaskRunner.Host() {
+        @Override
+        public void postTaskDone() {
+            post(mRefreshTaskDone);
+        }
+
+        @Override
+        public void removeTaskDone() {
+            removeCallbacks(mRefreshTaskDone);
+        }
+
+        @Override
+        public boolean isRefreshing() {
+            return mEngine.isRefreshing();
+        }
+
+        @Override
+        public void refreshComplete(boolean succeeded) {
+            RefreshLayout.this.refreshComplete(succeeded);
+        }
+    });
+    //多个 layout 共享的刷新调度，为空时直接开始加载
+    private RefreshScheduler mRefreshScheduler;
+    private String mRefreshKey;
+    private final SchedulerClient mSchedulerClient = new SchedulerClient();
+    //加载更多
+    private LoadMore mLoadMore;
+    private View mFooterView;
+    private final LoadMoreIndicator mLoadMoreIndicator = new LoadMoreIndicator();
+    private boolean mLoadingMore = false;
+    private boolean mHasMore = true;
+    private boolean mIsObservingContent = false;
+    private final ContentObserver mContentObserver = new ContentObserver();
     private boolean mHasSendCancelEvent = false;
-    private MotionEvent mLastMoveEvent;
+    //上一次 move 事件的数据，MotionEvent 由系统回收复用，不能直接持有
+    private boolean mHasLastMove = false;
+    private long mLastMoveDownTime;
+    private long mLastMoveEventTime;
+    private float mLastMoveX;
+    private float mLastMoveY;
+    private int mLastMoveMetaState;
     // disable when detect moving horizontally
     private boolean mPreventForHorizontal = false; //防止水平滚动
     private boolean mDisableHorizontalMove = false;//禁用水平移动
-    private int mLoadingMinTime = 500;
+    //性能数据，为空时不记录
+    private RefreshMetrics mMetrics;
+    private long mPrepareTimeNanos;//进入 PREPARE 的时间
+    private long mLoadingStartNanos;//开始加载的时间，0 表示已经记录了完成或者没有开始
+    private RefreshTrace mTrace;//刷新各阶段的 span，为空时不记录
     private Runnable mPerformRefreshCompleteDelay = new Runnable() {
         @Override
         public void run() {
-            performRefreshComplete();
+            mEngine.performRefreshComplete();
+        }
+    };
+    private final Runnable mRefreshTaskDone = new Runnable() {
+        @Override
+        public void run() {
+            mRefreshTaskRunner.onTaskDone();
         }
     };
 
@@ -80,8 +167,13 @@ public class RefreshLayout extends ViewGroup {
     }
 
     private void init(Context context, AttributeSet attrs, int defStyleAttr) {
-        mPagingTouchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop() * 2;
+        final ViewConfiguration configuration = ViewConfiguration.get(getContext());
+        mPagingTouchSlop = configuration.getScaledTouchSlop() * 2;
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
         mRefreshIndicator = new RefreshIndicator();
+        mEngine = new RefreshEngine(new EngineHost(), mRefreshIndicator);
+        mAnimationDriver = AnimationDriver.create(this);
         mScrollWrapper = new ScrollWrapper();
         //获取xml属性
         TypedArray typeArray = context.obtainStyledAttributes(attrs, R.styleable.RefreshLayout, 0, 0);
@@ -89,12 +181,23 @@ public class RefreshLayout extends ViewGroup {
             mHeaderId = typeArray.getResourceId(R.styleable.RefreshLayout_header, mHeaderId);
             mContentId = typeArray.getResourceId(R.styleable.RefreshLayout_content, mContentId);
             mRefreshIndicator.setResistance(typeArray.getFloat(R.styleable.RefreshLayout_resistance, mRefreshIndicator.getResistance()));
-            mDurationToClose = typeArray.getInt(R.styleable.RefreshLayout_duration_to_close, mDurationToClose);
-            mDurationToCloseHeader = typeArray.getInt(R.styleable.RefreshLayout_duration_to_close_header, mDurationToCloseHeader);
+            if (typeArray.getInt(R.styleable.RefreshLayout_resistance_curve, RESISTANCE_CURVE_NONE) == RESISTANCE_CURVE_PROGRESSIVE) {
+                mRefreshIndicator.setResistanceCurve(ResistanceCurve.progressive(
+                        typeArray.getFloat(R.styleable.RefreshLayout_resistance_max_multiple, 3f),
+                        typeArray.getFloat(R.styleable.RefreshLayout_resistance_curve_range, 2f)));
+            }
+            mEngine.setDurationToClose(typeArray.getInt(R.styleable.RefreshLayout_duration_to_close, mEngine.getDurationToClose()));
+            mEngine.setDurationToCloseHeader(typeArray.getInt(R.styleable.RefreshLayout_duration_to_close_header, mEngine.getDurationToCloseHeader()));
             float ratio = typeArray.getFloat(R.styleable.RefreshLayout_ratio_of_header_height_to_refresh, mRefreshIndicator.getRatioOfHeaderToHeightRefresh());
             mRefreshIndicator.setRatioOfHeaderHeightToRefresh(ratio);
-            mKeepHeaderWhenRefresh = typeArray.getBoolean(R.styleable.RefreshLayout_keep_header_when_refresh, mKeepHeaderWhenRefresh);
-            mPullToRefresh = typeArray.getBoolean(R.styleable.RefreshLayout_pull_to_fresh, mPullToRefresh);
+            mEngine.setKeepHeaderWhenRefresh(typeArray.getBoolean(R.styleable.RefreshLayout_keep_header_when_refresh, mEngine.isKeepHeaderWhenRefresh()));
+            mEngine.setPullToRefresh(typeArray.getBoolean(R.styleable.RefreshLayout_pull_to_fresh, mEngine.isPullToRefresh()));
+            mConsumeHistoricalMoves = typeArray.getBoolean(R.styleable.RefreshLayout_consume_historical_moves, mConsumeHistoricalMoves);
+            setNestedScrollMode(typeArray.getBoolean(R.styleable.RefreshLayout_nested_scroll_mode, mNestedScrollMode));
+            mTranslationMode = typeArray.getBoolean(R.styleable.RefreshLayout_translation_mode, mTranslationMode);
+            setSpeculativeRefreshRatio(typeArray.getFloat(R.styleable.RefreshLayout_speculative_refresh_ratio, getSpeculativeRefreshRatio()));
+            mLoadMoreIndicator.setPrefetchDistance(typeArray.getDimensionPixelSize(R.styleable.RefreshLayout_load_more_prefetch_distance, mLoadMoreIndicator.getPrefetchDistance()));
+            mLoadMoreIndicator.setPrefetchItems(typeArray.getInt(R.styleable.RefreshLayout_load_more_prefetch_items, mLoadMoreIndicator.getPrefetchItems()));
             typeArray.recycle();
         }
     }
@@ -182,11 +285,10 @@ public class RefreshLayout extends ViewGroup {
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         if (mHeaderView != null) {
-            //该方法是一个调用子view　onMeasure的过度层
-            measureChildWithMargins(mHeaderView, widthMeasureSpec, 0, heightMeasureSpec, 0);
-            MarginLayoutParams lp = (MarginLayoutParams) mHeaderView.getLayoutParams();
-            mHeaderHeight = mHeaderView.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
-            //保存header height
+            measureHeader(widthMeasureSpec, heightMeasureSpec);
+        } else if (mHeaderFactory != null) {
+            //Header 还没有创建，使用预留的高度
+            mHeaderHeight = mLazyHeaderHeight;
             mRefreshIndicator.setHeaderHeight(mHeaderHeight);
         }
 
@@ -197,6 +299,30 @@ public class RefreshLayout extends ViewGroup {
             final int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec, getPaddingTop() + getPaddingBottom() + lp.topMargin, lp.height);
             mContentView.measure(childWidthMeasureSpec, childHeightMeasureSpec);
         }
+
+        if (mFooterView != null) {
+            measureChildWithMargins(mFooterView, widthMeasureSpec, 0, heightMeasureSpec, 0);
+        }
+    }
+
+    private void measureHeader(int widthMeasureSpec, int heightMeasureSpec) {
+        //该方法是一个调用子view　onMeasure的过度层
+        measureChildWithMargins(mHeaderView, widthMeasureSpec, 0, heightMeasureSpec, 0);
+        MarginLayoutParams lp = (MarginLayoutParams) mHeaderView.getLayoutParams();
+        mHeaderHeight = mHeaderView.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+        //保存header height
+        mRefreshIndicator.setHeaderHeight(mHeaderHeight);
+    }
+
+    private void layoutHeader(int offsetY) {
+        MarginLayoutParams lp = (MarginLayoutParams) mHeaderView.getLayoutParams();
+        final int left = getPaddingLeft() + lp.leftMargin;
+        // enhance readability(header is layout above screen when first init)
+        //-mHeaderHeight会让headerView初始时向上偏移到刚好看不见
+        final int top = getPaddingTop() + lp.topMargin + offsetY - mHeaderHeight;
+        final int right = left + mHeaderView.getMeasuredWidth();
+        final int bottom = top + mHeaderView.getMeasuredHeight();
+        mHeaderView.layout(left, top, right, bottom);
     }
 
     @Override
@@ -207,14 +333,7 @@ public class RefreshLayout extends ViewGroup {
         int paddingTop = getPaddingTop();
 
         if (mHeaderView != null) {
-            MarginLayoutParams lp = (MarginLayoutParams) mHeaderView.getLayoutParams();
-            final int left = paddingLeft + lp.leftMargin;
-            // enhance readability(header is layout above screen when first init)
-            //-mHeaderHeight会让headerView初始时向上偏移到刚好看不见
-            final int top = paddingTop + lp.topMargin + offsetY - mHeaderHeight;
-            final int right = left + mHeaderView.getMeasuredWidth();
-            final int bottom = top + mHeaderView.getMeasuredHeight();
-            mHeaderView.layout(left, top, right, bottom);
+            layoutHeader(offsetY);
         }
         //没有减去mHeaderView,所以初始状态值看得到一个contentView. 并且headerView始终都是在contentView上面的.就和竖直方向的一个线性布局似的.
         //因为控制view在viewGroup的左上右下下个坐标,headerView和contentView只在top上坐标有差异.
@@ -229,6 +348,18 @@ public class RefreshLayout extends ViewGroup {
             final int bottom = top + mContentView.getMeasuredHeight();
             mContentView.layout(left, top, right, bottom);
         }
+        if (mFooterView != null) {
+            //Footer 固定在底部，盖在 Content 上面
+            MarginLayoutParams lp = (MarginLayoutParams) mFooterView.getLayoutParams();
+            final int left = paddingLeft + lp.leftMargin;
+            final int bottom = getMeasuredHeight() - getPaddingBottom() - lp.bottomMargin;
+            mFooterView.layout(left, bottom - mFooterView.getMeasuredHeight(), left + mFooterView.getMeasuredWidth(), bottom);
+        }
+        //已经按当前位置布局，去掉 translation
+        if (mIsTranslating) {
+            endTranslation();
+        }
+        mLayoutPosY = mRefreshIndicator.getCurrentPosY();
     }
 
     /**
@@ -239,21 +370,28 @@ public class RefreshLayout extends ViewGroup {
      */
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
-        if (!isEnabled() || mHeaderView == null || mContentView == null) {
+        if (!isEnabled() || !hasHeaderView() || mContentView == null) {
             return super.dispatchTouchEvent(ev);
         }
         int action = ev.getAction();
+        trackVelocity(ev);
+        if (mNestedScrollInProgress) {
+            return dispatchNestedTouchEvent(ev);
+        }
         switch (action) {
             case MotionEvent.ACTION_DOWN://手指按下　暂定所有正在进行的动作　等待手指操作
                 mRefreshIndicator.onTouchDown(ev.getX(), ev.getY());//位置指示器记录位置信息
+                if (mTrace != null) {
+                    mTrace.onTouchDown();
+                }
                 mScrollWrapper.abortIfWorking();//滚动器强制暂停
                 mHasSendCancelEvent = false;//是否已经发送取消事件
                 mPreventForHorizontal = false;//不禁止水平滚动
                 super.dispatchTouchEvent(ev);
                 return true;
             case MotionEvent.ACTION_MOVE:
-                mRefreshIndicator.onTouchMove(ev.getX(), ev.getY());//位置指示器记录位置信息
-                mLastMoveEvent = ev;//记录当前动作　防止以后获取上次的事件
+                onTouchMove(ev);//位置指示器记录位置信息
+                saveLastMove(ev);//记录当前动作　防止以后获取上次的事件
                 float offsetX = mRefreshIndicator.getOffsetX();//获取偏移量
                 float offsetY = mRefreshIndicator.getOffsetY();
 
@@ -283,12 +421,16 @@ public class RefreshLayout extends ViewGroup {
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL://手放开
                 mRefreshIndicator.onTouchUp();//指示器设置没有动作
+                float velocityY = computeReleaseVelocity();
                 if (mRefreshIndicator.hasLeftStartPosition()) {//头部是否有移动
-                    onRelease(false);
+                    onRelease(false, velocityY);
+                    commitTranslationIfIdle();
                     if (mRefreshIndicator.hasMovedAfterPressedDown()) {// TODO: 6/25/16
                         sendCancelEvent();
                         return true;
                     }
+                } else {
+                    commitTranslationIfIdle();
                 }
                 break;
             default:
@@ -298,6 +440,70 @@ public class RefreshLayout extends ViewGroup {
     }
 
 
+    /**
+     * Content 已经开始嵌套滚动，头部的移动全部由嵌套滚动回调驱动，这里只负责记录松手速度。
+     */
+    private boolean dispatchNestedTouchEvent(MotionEvent ev) {
+        final int action = ev.getAction();
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mNestedReleaseVelocityY = computeReleaseVelocity();
+            boolean handled = super.dispatchTouchEvent(ev);
+            //Content 没有结束嵌套滚动时补上
+            if (mNestedScrollInProgress) {
+                onStopNestedScroll(mContentView);
+            }
+            return handled;
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
+    private void trackVelocity(MotionEvent ev) {
+        if (ev.getAction() == MotionEvent.ACTION_DOWN) {
+            if (mVelocityTracker == null) {
+                mVelocityTracker = VelocityTracker.obtain();
+            } else {
+                mVelocityTracker.clear();
+            }
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.addMovement(ev);
+        }
+    }
+
+    /**
+     * 松手时的竖直速度，单位 px/s，向下为正。VelocityTracker 随即回收。
+     */
+    private float computeReleaseVelocity() {
+        if (mVelocityTracker == null) {
+            return 0;
+        }
+        mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+        float velocityY = mVelocityTracker.getYVelocity();
+        mVelocityTracker.recycle();
+        mVelocityTracker = null;
+        return velocityY;
+    }
+
+    /**
+     * 把 move 事件交给指示器。开启 {@link #mConsumeHistoricalMoves} 时，事件中批量的历史采样会一次处理完，
+     * 偏移量累加到一起，之后只移动一次、只回调一次 onUIPositionChange。
+     * 累加时每个采样都在顶部截断，方向判断用的也是截断后的偏移量，最终位置和逐个处理相同。
+     *
+     * @param ev
+     */
+    private void onTouchMove(MotionEvent ev) {
+        final int historySize = mConsumeHistoricalMoves ? ev.getHistorySize() : 0;
+        if (historySize == 0) {
+            mRefreshIndicator.onTouchMove(ev.getX(), ev.getY());
+            return;
+        }
+        mRefreshIndicator.onTouchMove(ev.getHistoricalX(0), ev.getHistoricalY(0));
+        for (int h = 1; h < historySize; h++) {
+            mRefreshIndicator.onTouchMoveBatched(ev.getHistoricalX(h), ev.getHistoricalY(h));
+        }
+        mRefreshIndicator.onTouchMoveBatched(ev.getX(), ev.getY());
+    }
+
     /**
      * please DO REMEMBER resume the hook
      *
@@ -309,123 +515,64 @@ public class RefreshLayout extends ViewGroup {
         hook.setResumeAction(new Runnable() {
             @Override
             public void run() {
-                notifyUIRefreshComplete(true);
+                mEngine.resumeRefreshComplete();
             }
         });
     }
 
     /**
-     * 释放头部
+     * 释放头部，交给状态机决定停在加载位置还是回到顶部
      *
      * @param stayForLoading 是否保持当前位置加载
+     * @param velocityY      手指松开时的速度，单位 px/s，向下为正
      */
-    private void onRelease(boolean stayForLoading) {
-        tryToPerformRefresh();
-        if (mStatus == REFRESH_STATUS_LOADING) {
-            // keep header for fresh
-            if (mKeepHeaderWhenRefresh) {
-                // scroll header back
-                if (mRefreshIndicator.isOverOffsetToKeepHeaderWhileLoading() && !stayForLoading) {
-                    mScrollWrapper.tryToScrollTo(mRefreshIndicator.getOffsetToKeepHeaderWhileLoading(), mDurationToClose);
-                } else {
-                    // do nothing
-                }
-            } else {
-                scrollBackToTop();
-            }
-        } else {
-            if (mStatus == REFRESH_STATUS_COMPLETE) {
-                notifyUIRefreshComplete(false);
-            } else {
-                scrollBackToTop();
-            }
-        }
-    }
-
-    //尝试执行刷新　需要判断
-    private boolean tryToPerformRefresh() {
-        if (mStatus != REFRESH_STATUS_PREPARE) {
-            return false;
-        }
-
-        //
-        if ((mRefreshIndicator.isOverOffsetToKeepHeaderWhileLoading() && isAutoRefresh()) || mRefreshIndicator.isOverOffsetToRefresh()) {
-            mStatus = REFRESH_STATUS_LOADING;
-            performRefresh();
-        }
-        return false;
+    private void onRelease(boolean stayForLoading, float velocityY) {
+        //拖动时头部按阻尼减速移动，回弹要衔接的是头部的速度而不是手指的速度
+        mEngine.onRelease(stayForLoading, velocityY / mRefreshIndicator.getResistance(mRefreshIndicator.getCurrentPosExact()));
     }
 
     /**
-     * 开始执行刷新
+     * 按头部的速度滚动，曲线和时长见 {@link FrameScroller#computeFlingDuration(int, float, float, int, int)}
      */
-    private void performRefresh() {
-        mLoadingStartTime = System.currentTimeMillis();
-        if (mPtrUIHandlerHolder.hasHandler()) {
-            mPtrUIHandlerHolder.onUIRefreshBegin(this);
-        }
-        if (mRefresh != null) {
-            mRefresh.onRefreshBegin(this);
+    private void releaseTo(int to, int maxDuration, float velocityY) {
+        final int distance = to - mRefreshIndicator.getCurrentPosY();
+        final int duration = FrameScroller.computeFlingDuration(distance, velocityY, mMinFlingVelocity, MIN_FLING_RELEASE_DURATION, maxDuration);
+        if (duration != FrameScroller.NO_FLING) {
+            mScrollWrapper.tryToScrollTo(to, duration, FrameScroller.CURVE_DECELERATE);
+        } else {
+            mScrollWrapper.tryToScrollTo(to, maxDuration, FrameScroller.CURVE_VISCOUS_FLUID);
         }
     }
 
     public boolean isRefreshing() {
-        return mStatus == REFRESH_STATUS_LOADING;
+        return mEngine.isRefreshing();
     }
 
     //默认状态　自动调用刷新
     public boolean isAutoRefresh() {
-        return this.isAutoRefresh;
+        return mEngine.isAutoRefresh();
     }
 
     /**
-     * 滚回到顶部　没有触摸事件
+     * @return 当前的刷新状态，REFRESH_STATUS_INIT 等
      */
-    private void scrollBackToTop() {
-        if (!mRefreshIndicator.isTouch()) {
-            mScrollWrapper.tryToScrollTo(RefreshIndicator.POS_START, mDurationToCloseHeader);
-        }
+    public byte getStatus() {
+        return mEngine.getStatus();
     }
 
     /**
-     * Do real refresh work. If there is a hook, execute the hook first.
+     * 内容 fling 到顶部时调用，把剩余的速度转换成头部的回弹，回弹不会触发刷新。
      *
-     * @param ignoreHook
+     * @param velocityY 到达顶部时的速度，单位 px/s，向下为正
      */
-    private void notifyUIRefreshComplete(boolean ignoreHook) {
-        /**
-         * After hook operation is done, {@link #notifyUIRefreshComplete} will be call in resume action to ignore hook.
-         */
-        if (mRefreshIndicator.hasLeftStartPosition() && !ignoreHook && mRefreshCompleteHook != null) {
-            mRefreshCompleteHook.takeOver();
+    public void overScrollByFling(float velocityY) {
+        if (velocityY <= mMinFlingVelocity || mEngine.getStatus() != REFRESH_STATUS_INIT || mRefreshIndicator.isTouch() || !hasHeaderView()) {
             return;
         }
-        if (mPtrUIHandlerHolder.hasHandler()) {
-            mPtrUIHandlerHolder.onUIRefreshComplete(this);
-        }
-        mRefreshIndicator.onUIRefreshComplete();
-        scrollBackToTop();
-        notifyReset();
-    }
-
-    /**
-     * If at the top and not in loading, reset
-     */
-    private boolean notifyReset() {
-        if ((mStatus == REFRESH_STATUS_COMPLETE || mStatus == REFRESH_STATUS_PREPARE) && mRefreshIndicator.isInStartPosition()) {
-            if (mPtrUIHandlerHolder.hasHandler()) {
-                mPtrUIHandlerHolder.onUIReset(this);
-            }
-            mStatus = REFRESH_STATUS_INIT;
-            clearFlag();
-            return true;
-        }
-        return false;
-    }
-
-    private void clearFlag() {
-        // remove auto fresh flag
-        isAutoRefresh = false;
+        //最大不超过刷新线，速度越大回弹越远
+        int maxDistance = Math.min(mHeaderHeight, mRefreshIndicator.getOffsetToRefresh() - 1);
+        int distance = (int) (maxDistance * Math.min(velocityY, mMaxFlingVelocity) / mMaxFlingVelocity);
+        mEngine.overScroll(distance, velocityY);
     }
 
     /**
@@ -434,25 +581,27 @@ public class RefreshLayout extends ViewGroup {
      * @param deltaY
      */
     private void movePos(float deltaY) {
-        // has reached the top
-        if ((deltaY < 0 && mRefreshIndicator.isInStartPosition())) {
+        final RefreshMetrics metrics = mMetrics;
+        if (metrics == null) {
+            doMovePos(deltaY);
             return;
         }
+        final long start = System.nanoTime();
+        doMovePos(deltaY);
+        metrics.record(RefreshMetrics.TYPE_MOVE, System.nanoTime() - start);
+    }
 
-        //需要达到的点
-        int to = mRefreshIndicator.getCurrentPosY() + (int) deltaY;
+    private void doMovePos(float deltaY) {
+        //需要达到的点，向上时停在顶部
+        final float toExact = mEngine.getMoveTarget(deltaY);
 
-        // over top
-        if (mRefreshIndicator.willOverTop(to)) {
-            //如果到达开始点　则不再移动
-            to = RefreshIndicator.POS_START;
+        //懒加载的 Header 在第一次离开顶部时创建
+        if (mHeaderView == null && (int) toExact != mRefreshIndicator.getCurrentPosY()) {
+            ensureHeaderView();
         }
 
-        //重新更新当前点
-        mRefreshIndicator.setCurrentPos(to);
-        //获取改变的距离
-        int change = to - mRefreshIndicator.getLastPosY();
-        //移动
+        //重新更新当前点，获取改变的距离
+        final int change = mEngine.moveTo(toExact);
         //没有移动
         if (change == 0) {
             return;
@@ -461,226 +610,413 @@ public class RefreshLayout extends ViewGroup {
         boolean isTouch = mRefreshIndicator.isTouch();
 
         // once moved, cancel event will be sent to child
-        if (isTouch && !mHasSendCancelEvent && mRefreshIndicator.hasMovedAfterPressedDown()) {
+        if (isTouch && !mNestedScrollInProgress && !mHasSendCancelEvent && mRefreshIndicator.hasMovedAfterPressedDown()) {
             mHasSendCancelEvent = true;
             sendCancelEvent();
         }
 
-        // leave initiated position or just refresh complete
-        if ((mRefreshIndicator.hasJustLeftStartPosition() && mStatus == REFRESH_STATUS_INIT) || (mRefreshIndicator.goDownCrossFinishPosition() && mStatus == REFRESH_STATUS_COMPLETE && isEnableContinueRefresh())) {
-            //预备状态
-            mStatus = REFRESH_STATUS_PREPARE;
-            mPtrUIHandlerHolder.onUIRefreshPrepare(this);
+        //状态切换：离开顶部进入 PREPARE、回到顶部重置、下拉刷新
+        mEngine.onPositionChange(isTouch);
+
+        if (mTrace != null && mEngine.getStatus() == REFRESH_STATUS_PREPARE && mRefreshIndicator.crossRefreshLineFromTopToBottom()) {
+            mTrace.onThresholdCrossed();
         }
 
-        // back to initiated position
-        if (mRefreshIndicator.hasJustBackToStartPosition()) {
-            //回到开始点　重置
-            notifyReset();
+        if (mRefresh instanceof SpeculativeRefresh && isTouch && change > 0 && mEngine.getStatus() == REFRESH_STATUS_PREPARE) {
+            mRefreshTaskRunner.onPull((SpeculativeRefresh) mRefresh, this, mRefreshIndicator.getCurrentPosY(), mRefreshIndicator.getOffsetToRefresh());
+        }
 
-            // recover event to children
-            if (isTouch) {
-                sendDownEvent();
-            }
+        // back to initiated position, recover event to children
+        if (mRefreshIndicator.hasJustBackToStartPosition() && isTouch && !mNestedScrollInProgress) {
+            sendDownEvent();
         }
 
-        // Pull to Refresh
-        if (mStatus == REFRESH_STATUS_PREPARE) {
-            // reach fresh height while moving from top to bottom
-            if (isTouch && !isAutoRefresh() && mPullToRefresh && mRefreshIndicator.crossRefreshLineFromTopToBottom()) {
-                tryToPerformRefresh();
-            }
-            // reach header height while auto refresh
-            if (performAutoRefreshButLater() && mRefreshIndicator.hasJustReachedHeaderHeightFromTopToBottom()) {
-                tryToPerformRefresh();
+        if (mTranslationMode) {
+            applyTranslation();
+        } else {
+            mHeaderView.offsetTopAndBottom(change);
+            if (!isPinContent()) {
+                mContentView.offsetTopAndBottom(change);
             }
+            invalidate();
+        }
+
+        if (mPtrUIHandlerHolder.hasPositionHandler()) {
+            mPtrUIHandlerHolder.onUIPositionChange(this, isTouch, mEngine.getStatus(), mRefreshIndicator);
         }
+        onPositionChange(isTouch, mEngine.getStatus(), mRefreshIndicator);
+    }
+
+    protected void onPositionChange(boolean isInTouching, byte status, RefreshIndicator mRefreshIndicator) {
+    }
 
-        mHeaderView.offsetTopAndBottom(change);
-        if (!isPinContent()) {
-            mContentView.offsetTopAndBottom(change);
+    /**
+     * translation 模式下移动 header 和 content，只修改 RenderNode 的属性，不重绘 RefreshLayout。
+     * 第一次移动时给两者开启硬件层。
+     */
+    private void applyTranslation() {
+        if (!mIsTranslating) {
+            mIsTranslating = true;
+            mIsTranslatingContent = !isPinContent();
+            mHeaderLayerType = mHeaderView.getLayerType();
+            mHeaderView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            if (mIsTranslatingContent) {
+                mContentLayerType = mContentView.getLayerType();
+                mContentView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            }
         }
-        invalidate();
+        final float translationY = mRefreshIndicator.getCurrentPosY() - mLayoutPosY;
+        mHeaderView.setTranslationY(translationY);
+        if (mIsTranslatingContent) {
+            mContentView.setTranslationY(translationY);
+        }
+    }
 
-        if (mPtrUIHandlerHolder.hasHandler()) {
-            mPtrUIHandlerHolder.onUIPositionChange(this, isTouch, mStatus, mRefreshIndicator);
+    /**
+     * 停止拖动并且没有动画时，把 translation 转换成真正的位置
+     */
+    private void commitTranslationIfIdle() {
+        if (!mIsTranslating || mRefreshIndicator.isTouch() || mScrollWrapper.mIsRunning) {
+            return;
+        }
+        final int change = mRefreshIndicator.getCurrentPosY() - mLayoutPosY;
+        endTranslation();
+        if (change != 0) {
+            mHeaderView.offsetTopAndBottom(change);
+            if (!isPinContent()) {
+                mContentView.offsetTopAndBottom(change);
+            }
+            invalidate();
         }
-        onPositionChange(isTouch, mStatus, mRefreshIndicator);
+        mLayoutPosY = mRefreshIndicator.getCurrentPosY();
     }
 
-    protected void onPositionChange(boolean isInTouching, byte status, RefreshIndicator mRefreshIndicator) {
+    private void endTranslation() {
+        mIsTranslating = false;
+        mHeaderView.setTranslationY(0);
+        mHeaderView.setLayerType(mHeaderLayerType, null);
+        if (mIsTranslatingContent) {
+            mIsTranslatingContent = false;
+            mContentView.setTranslationY(0);
+            mContentView.setLayerType(mContentLayerType, null);
+        }
     }
 
-    private boolean performAutoRefreshButLater() {
-        return this.isAutoRefreshButLater;
+    private void saveLastMove(MotionEvent ev) {
+        mHasLastMove = true;
+        mLastMoveDownTime = ev.getDownTime();
+        mLastMoveEventTime = ev.getEventTime();
+        mLastMoveX = ev.getX();
+        mLastMoveY = ev.getY();
+        mLastMoveMetaState = ev.getMetaState();
     }
 
     //改变事件给内容
     private void sendDownEvent() {
-        final MotionEvent last = mLastMoveEvent;
-        MotionEvent e = MotionEvent.obtain(last.getDownTime(), last.getEventTime(), MotionEvent.ACTION_DOWN, last.getX(), last.getY(), last.getMetaState());
+        if (!mHasLastMove) {
+            return;
+        }
+        MotionEvent e = MotionEvent.obtain(mLastMoveDownTime, mLastMoveEventTime, MotionEvent.ACTION_DOWN, mLastMoveX, mLastMoveY, mLastMoveMetaState);
         super.dispatchTouchEvent(e);
+        e.recycle();
     }
 
     //将释放之后的事件交由系统处理
     private void sendCancelEvent() {
-        // The ScrollChecker will update position and lead to send cancel event when mLastMoveEvent is null.
+        // The ScrollChecker will update position and lead to send cancel event when there is no move yet.
         // fix #104, #80, #92
-        if (mLastMoveEvent == null) {
+        if (!mHasLastMove) {
             return;
         }
-        MotionEvent last = mLastMoveEvent;
-        MotionEvent e = MotionEvent.obtain(last.getDownTime(), last.getEventTime() + ViewConfiguration.getLongPressTimeout(), MotionEvent.ACTION_CANCEL, last.getX(), last.getY(), last.getMetaState());
+        MotionEvent e = MotionEvent.obtain(mLastMoveDownTime, mLastMoveEventTime + ViewConfiguration.getLongPressTimeout(), MotionEvent.ACTION_CANCEL, mLastMoveX, mLastMoveY, mLastMoveMetaState);
         super.dispatchTouchEvent(e);
+        e.recycle();
     }
 
-    class ScrollWrapper implements Runnable {
-        private Scroller mScroller;
-        private int mLastFlingY;
+    private static final int MIN_FLING_RELEASE_DURATION = 100;
+
+    class ScrollWrapper implements AnimationDriver.FrameCallback {
+        private final FrameScroller mScroller = new FrameScroller();
         private boolean mIsRunning = false;
+        private int mGeneration;//每次开始或中断滚动都会递增，用来发现回调中被重新发起的滚动
         private int mStart;
         private int mTo;
+        //掉帧统计，只在开启 metrics 时更新
+        private long mLastFrameTimeNanos;
+        private int mFrameCount;
+        private int mDroppedFrames;
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mIsRunning) {
+                return;
+            }
+            final RefreshMetrics metrics = mMetrics;
+            if (metrics == null) {
+                step(frameTimeNanos);
+                return;
+            }
+            countDroppedFrames(metrics, frameTimeNanos);
+            final long start = System.nanoTime();
+            step(frameTimeNanos);
+            metrics.record(RefreshMetrics.TYPE_SCROLL_FRAME, System.nanoTime() - start);
+        }
 
-        public ScrollWrapper() {
-            mScroller = new Scroller(getContext());
+        //两帧的间隔超过一个帧间隔时，多出来的帧数记为掉帧
+        private void countDroppedFrames(RefreshMetrics metrics, long frameTimeNanos) {
+            if (mLastFrameTimeNanos != 0) {
+                final long interval = metrics.getFrameIntervalNanos();
+                final long frames = (frameTimeNanos - mLastFrameTimeNanos + interval / 2) / interval;
+                if (frames > 1) {
+                    mDroppedFrames += frames - 1;
+                }
+            }
+            mLastFrameTimeNanos = frameTimeNanos;
+            mFrameCount++;
         }
 
-        @Override
-        public void run() {
-            //滚动是否完成
-            boolean finish = !mScroller.computeScrollOffset() || mScroller.isFinished();
-            int curY = mScroller.getCurrY();
-            //滚动的偏移量
-            int deltaY = curY - mLastFlingY;
-            if (!finish) {
-                //滚动未完成
-                mLastFlingY = curY;
+        private void reportDroppedFrames() {
+            if (mMetrics != null && mFrameCount > 0) {
+                mMetrics.record(RefreshMetrics.TYPE_DROPPED_FRAMES, mDroppedFrames, null, mFrameCount + mDroppedFrames);
+            }
+            mLastFrameTimeNanos = 0;
+            mFrameCount = 0;
+            mDroppedFrames = 0;
+        }
+
+        private void step(long frameTimeNanos) {
+            final int generation = mGeneration;
+            //滚动是否完成，位置只由帧时间决定，一帧只调用一次 movePos
+            boolean finish = !mScroller.computePosition(frameTimeNanos) || mScroller.isFinished();
+            int deltaY = mScroller.getCurrentPos() - mRefreshIndicator.getCurrentPosY();
+            if (deltaY != 0) {
                 movePos(deltaY);
-                post(this);
+            }
+            if (generation != mGeneration) {
+                //movePos 的回调中开始了新的滚动或中断了滚动
+                return;
+            }
+            if (!finish) {
+                mAnimationDriver.postFrameCallback(this);
             } else {
                 finish();
             }
         }
 
         private void finish() {
+            reportDroppedFrames();
             reset();
             onPtrScrollFinish();
+            commitTranslationIfIdle();
         }
 
         //重置Scroller
         private void reset() {
             mIsRunning = false;
-            mLastFlingY = 0;
-            removeCallbacks(this);
+            mGeneration++;
+            mAnimationDriver.removeFrameCallback(this);
         }
 
         private void destroy() {
             reset();
-            if (!mScroller.isFinished()) {
-                mScroller.forceFinished(true);
-            }
+            mScroller.forceFinished();
         }
 
         //中断操作
         public void abortIfWorking() {
             if (mIsRunning) {
-                if (!mScroller.isFinished()) {
-                    mScroller.forceFinished(true);
-                }
-                onPtrScrollAbort();
+                mScroller.forceFinished();
+                reportDroppedFrames();
                 reset();
+                onPtrScrollAbort();
             }
         }
 
         //滚动到指定距离
-        public void tryToScrollTo(int to, int duration) {
+        public void tryToScrollTo(int to, int duration, int curve) {
             //已经在这个位置
             if (mRefreshIndicator.isAlreadyHere(to)) {
                 return;
             }
+            //动画按整像素移动，丢掉拖动留下的小数部分
+            mRefreshIndicator.snapToPixel();
             mStart = mRefreshIndicator.getCurrentPosY();
             mTo = to;
             int distance = to - mStart;
-            removeCallbacks(this);
+            reportDroppedFrames();
+            reset();
 
-            mLastFlingY = 0;
-            if (!mScroller.isFinished()) {
-                mScroller.forceFinished(true);
-            }
-            mScroller.startScroll(0, 0, 0, distance, duration);
-            post(this);
+            mScroller.start(mStart, distance, duration, System.nanoTime(), curve);
+            mAnimationDriver.postFrameCallback(this);
             mIsRunning = true;
         }
 
     }
 
-    protected void onPtrScrollAbort() {
-        if (mRefreshIndicator.hasLeftStartPosition() && isAutoRefresh()) {
-            onRelease(true);
+    /**
+     * 状态机要求的 UI 操作
+     */
+    private class EngineHost implements RefreshEngine.Host {
+        @Override
+        public void onUIReset() {
+            mRefreshTaskRunner.cancelSpeculative();
+            if (mPtrUIHandlerHolder.hasHandler()) {
+                mPtrUIHandlerHolder.onUIReset(RefreshLayout.this);
+            }
+            if (mTrace != null) {
+                mTrace.onClosed();
+            }
+        }
+
+        @Override
+        public void onUIRefreshPrepare() {
+            if (mMetrics != null) {
+                mPrepareTimeNanos = System.nanoTime();
+            }
+            if (mTrace != null) {
+                mTrace.onGestureStart(mRefreshIndicator.isTouch());
+            }
+            if (mPtrUIHandlerHolder.hasHandler()) {
+                mPtrUIHandlerHolder.onUIRefreshPrepare(RefreshLayout.this);
+            }
+        }
+
+        @Override
+        public void onUIRefreshBegin() {
+            if (mMetrics != null) {
+                mLoadingStartNanos = System.nanoTime();
+                if (mPrepareTimeNanos != 0) {
+                    mMetrics.record(RefreshMetrics.TYPE_PULL_TO_LOADING, System.nanoTime() - mPrepareTimeNanos);
+                    mPrepareTimeNanos = 0;
+                }
+            }
+            if (mPtrUIHandlerHolder.hasHandler()) {
+                mPtrUIHandlerHolder.onUIRefreshBegin(RefreshLayout.this);
+            }
+            //提前开始的加载已经在进行，不再排队
+            if (mRefreshScheduler != null && !mRefreshTaskRunner.isSpeculative()) {
+                mSchedulerClient.submit();
+            } else {
+                startRefresh();
+            }
+        }
+
+        @Override
+        public void onUIRefreshComplete() {
+            if (mMetrics != null && mLoadingStartNanos != 0) {
+                //完成后没回到顶部再次松手时会重复回调，只记录一次
+                //和其他类型一样用 nanoTime，不受修改系统时间影响
+                mMetrics.record(RefreshMetrics.TYPE_LOADING_TO_COMPLETE, System.nanoTime() - mLoadingStartNanos);
+                mLoadingStartNanos = 0;
+            }
+            if (mPtrUIHandlerHolder.hasHandler()) {
+                mPtrUIHandlerHolder.onUIRefreshComplete(RefreshLayout.this);
+            }
+        }
+
+        @Override
+        public boolean takeOverRefreshComplete() {
+            if (mRefreshCompleteHook == null) {
+                return false;
+            }
+            mRefreshCompleteHook.takeOver();
+            return true;
+        }
+
+        @Override
+        public void scrollTo(int to, int duration, float velocityY) {
+            releaseTo(to, duration, velocityY);
+        }
+
+        @Override
+        public boolean isScrolling() {
+            return mScrollWrapper.mIsRunning;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void postRefreshComplete(long delayMillis) {
+            postDelayed(mPerformRefreshCompleteDelay, delayMillis);
+        }
+    }
+
+    /**
+     * 通知 Refresh 开始加载。AsyncRefresh 已经有加载在进行时不再重复加载，等待它结束。
+     * 在 {@link RefreshScheduler} 中排队时，轮到加载才调用，trace 的开始加载也记在这里。
+     */
+    private void startRefresh() {
+        if (mTrace != null) {
+            mTrace.beginRefresh();
+        }
+        if (mRefresh instanceof AsyncRefresh) {
+            if (!mRefreshTaskRunner.start((AsyncRefresh) mRefresh, this)) {
+                //onRefreshTask 返回 null，退回到 onRefreshBegin 和手动调用 refreshComplete
+                mRefresh.onRefreshBegin(this);
+            }
+        } else if (mRefresh != null) {
+            mRefresh.onRefreshBegin(this);
         }
+        if (mTrace != null) {
+            mTrace.endRefreshBegin();
+        }
+    }
+
+    protected void onPtrScrollAbort() {
+        mEngine.onScrollAbort();
     }
 
     /**
      * Call this when data is loaded.
-     * The UI will perform complete at once or after a delay, depends on the time elapsed is greater then {@link #mLoadingMinTime} or not.
+     * The UI will perform complete at once or after a delay, depends on the time elapsed is greater then {@link #setLoadingMinTime(int)} or not.
      */
     final public void refreshComplete() {
+        refreshComplete(true);
+    }
+
+    /**
+     * @param succeeded 加载是否成功，失败或被取消时不记录 {@link #setFreshnessKey(String)} 的最后更新时间
+     */
+    private void refreshComplete(boolean succeeded) {
+        if (mTrace != null) {
+            mTrace.onDataArrived();
+        }
 
         if (mRefreshCompleteHook != null) {
             mRefreshCompleteHook.reset();
         }
 
-        int delay = (int) (mLoadingMinTime - (System.currentTimeMillis() - mLoadingStartTime));
-        if (delay <= 0) {
-            performRefreshComplete();
-        } else {
-            postDelayed(mPerformRefreshCompleteDelay, delay);
+        if (mRefreshScheduler != null) {
+            mSchedulerClient.finish(succeeded);
         }
-    }
-
-    /**
-     * Do refresh complete work when time elapsed is greater than {@link #mLoadingMinTime}
-     */
-    private void performRefreshComplete() {
-        mStatus = REFRESH_STATUS_COMPLETE;
 
-        // if is auto refresh do nothing, wait scroller stop
-        if (mScrollWrapper.mIsRunning && isAutoRefresh()) {
-            // do nothing
-            return;
-        }
-        notifyUIRefreshComplete(false);
+        mEngine.refreshComplete(succeeded);
     }
 
     protected void onPtrScrollFinish() {
-        if (mRefreshIndicator.hasLeftStartPosition() && isAutoRefresh()) {
-            onRelease(true);
-        }
+        mEngine.onScrollFinish();
     }
 
 
     //立即刷新
     public void autoRefresh() {
-        autoRefresh(true, mDurationToCloseHeader);
+        autoRefresh(true, mEngine.getDurationToCloseHeader());
     }
 
     public void autoRefresh(boolean atOnce) {
-        autoRefresh(atOnce, mDurationToCloseHeader);
+        autoRefresh(atOnce, mEngine.getDurationToCloseHeader());
     }
 
     public void autoRefresh(boolean atOnce, int duration) {
-        if (mStatus != REFRESH_STATUS_INIT) {
+        //有效期内直接返回，不创建 Header
+        if (!mEngine.shouldAutoRefresh()) {
             return;
         }
-        mStatus = REFRESH_STATUS_PREPARE;
-        if (mPtrUIHandlerHolder.hasHandler()) {
-            mPtrUIHandlerHolder.onUIRefreshPrepare(this);
-        }
-        mScrollWrapper.tryToScrollTo(mRefreshIndicator.getOffsetToRefresh(), duration);
-        if (atOnce) {
-            mStatus = REFRESH_STATUS_LOADING;
-            performRefresh();
-        }
+        ensureHeaderView();
+        mEngine.startAutoRefresh(atOnce, duration);
     }
 
 
@@ -690,11 +1026,11 @@ public class RefreshLayout extends ViewGroup {
      * @param enable
      */
     public void enableContinueRefresh(boolean enable) {
-        this.isEnableContinueRefresh = enable;
+        mEngine.enableContinueRefresh(enable);
     }
 
     public boolean isEnableContinueRefresh() {
-        return this.isEnableContinueRefresh;
+        return mEngine.isEnableContinueRefresh();
     }
 
     /**
@@ -726,7 +1062,7 @@ public class RefreshLayout extends ViewGroup {
      * @param time
      */
     public void setLoadingMinTime(int time) {
-        mLoadingMinTime = time;
+        mEngine.setLoadingMinTime(time);
     }
 
     /**
@@ -748,12 +1084,54 @@ public class RefreshLayout extends ViewGroup {
     }
 
     public void addPtrUIHandler(UIRefresh ptrUIHandler) {
-        UIRefreshHolder.addHandler(mPtrUIHandlerHolder, ptrUIHandler);
+        mPtrUIHandlerHolder.add(ptrUIHandler);
     }
 
     @SuppressWarnings({"unused"})
     public void removePtrUIHandler(UIRefresh ptrUIHandler) {
-        mPtrUIHandlerHolder = UIRefreshHolder.removeHandler(mPtrUIHandlerHolder, ptrUIHandler);
+        mPtrUIHandlerHolder.remove(ptrUIHandler);
+    }
+
+    /**
+     * 开启性能数据的记录，传 null 关闭。开启后由应用定期调用 {@link RefreshMetrics#drain(RefreshMetrics.Reader)} 读出。
+     *
+     * @param metrics
+     */
+    public void setMetrics(RefreshMetrics metrics) {
+        mMetrics = metrics;
+        mPtrUIHandlerHolder.setMetrics(metrics);
+        mPrepareTimeNanos = 0;
+        mLoadingStartNanos = 0;
+    }
+
+    public RefreshMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 开启刷新各阶段的 tracing，传 null 关闭
+     *
+     * @param trace
+     */
+    public void setTrace(RefreshTrace trace) {
+        mTrace = trace;
+    }
+
+    public RefreshTrace getTrace() {
+        return mTrace;
+    }
+
+    /**
+     * 替换驱动回弹动画的帧回调，默认与 vsync 同步。
+     *
+     * @param driver
+     */
+    public void setAnimationDriver(AnimationDriver driver) {
+        if (driver == null || driver == mAnimationDriver) {
+            return;
+        }
+        mScrollWrapper.abortIfWorking();
+        mAnimationDriver = driver;
     }
 
     public void setPtrIndicator(RefreshIndicator slider) {
@@ -761,6 +1139,7 @@ public class RefreshLayout extends ViewGroup {
             slider.convertFrom(mRefreshIndicator);
         }
         mRefreshIndicator = slider;
+        mEngine.setIndicator(slider);
     }
 
     @SuppressWarnings({"unused"})
@@ -772,14 +1151,23 @@ public class RefreshLayout extends ViewGroup {
         mRefreshIndicator.setResistance(resistance);
     }
 
+    /**
+     * 阻尼随下拉距离变化，见 {@link ResistanceCurve}
+     *
+     * @param curve 为 null 时阻尼固定
+     */
+    public void setResistanceCurve(ResistanceCurve curve) {
+        mRefreshIndicator.setResistanceCurve(curve);
+    }
+
     @SuppressWarnings({"unused"})
     public float getDurationToClose() {
-        return mDurationToClose;
+        return mEngine.getDurationToClose();
     }
 
     @SuppressWarnings({"unused"})
     public long getDurationToCloseHeader() {
-        return mDurationToCloseHeader;
+        return mEngine.getDurationToCloseHeader();
     }
 
     /**
@@ -788,7 +1176,7 @@ public class RefreshLayout extends ViewGroup {
      * @param duration
      */
     public void setDurationToCloseHeader(int duration) {
-        mDurationToCloseHeader = duration;
+        mEngine.setDurationToCloseHeader(duration);
     }
 
     public void setRatioOfHeaderHeightToRefresh(float ratio) {
@@ -821,51 +1209,680 @@ public class RefreshLayout extends ViewGroup {
 
     @SuppressWarnings({"unused"})
     public boolean isKeepHeaderWhenRefresh() {
-        return mKeepHeaderWhenRefresh;
+        return mEngine.isKeepHeaderWhenRefresh();
     }
 
     public void setKeepHeaderWhenRefresh(boolean keepOrNot) {
-        mKeepHeaderWhenRefresh = keepOrNot;
+        mEngine.setKeepHeaderWhenRefresh(keepOrNot);
     }
 
     public boolean isPullToRefresh() {
-        return mPullToRefresh;
+        return mEngine.isPullToRefresh();
     }
 
     public void setPullToRefresh(boolean pullToRefresh) {
-        mPullToRefresh = pullToRefresh;
+        mEngine.setPullToRefresh(pullToRefresh);
     }
 
-    public int getHeaderHeight() {
-        return mHeaderHeight;
+    public boolean isNestedScrollMode() {
+        return mNestedScrollMode;
     }
 
-    @SuppressWarnings({"unused"})
-    public View getHeaderView() {
-        return mHeaderView;
+    /**
+     * 开启后，支持嵌套滚动的 Content 通过嵌套滚动把未消费的距离交给头部，不再调用 {@link Refresh#canRefresh}，
+     * 也不再向 Content 发送伪造的事件。不支持嵌套滚动的 Content 仍然使用事件拦截。
+     *
+     * @param nestedScrollMode
+     */
+    public void setNestedScrollMode(boolean nestedScrollMode) {
+        mNestedScrollMode = nestedScrollMode;
+        setNestedScrollingEnabled(nestedScrollMode);
     }
 
-    public void setHeaderView(View header) {
-        if (mHeaderView != null && header != null && mHeaderView != header) {
-            removeView(mHeaderView);
-        }
-        ViewGroup.LayoutParams lp = header.getLayoutParams();
-        if (lp == null) {
-            lp = new MarginLayoutParams(-1, -2);
+    public boolean isTranslationMode() {
+        return mTranslationMode;
+    }
+
+    /**
+     * 开启后，拖动和回弹过程中 header 和 content 在硬件层上用 translationY 移动，不再每帧 offsetTopAndBottom 并重绘
+     * RefreshLayout；停下来以后才提交真正的位置。适合 Content 是大列表的情况。
+     * 注意移动过程中 header 和 content 的 getTop() 不会变化。
+     *
+     * @param translationMode
+     */
+    public void setTranslationMode(boolean translationMode) {
+        if (mTranslationMode == translationMode) {
+            return;
+        }
+        if (!translationMode && mIsTranslating) {
+            endTranslation();
+            requestLayout();
+        }
+        mTranslationMode = translationMode;
+    }
+
+    public boolean isConsumeHistoricalMoves() {
+        return mConsumeHistoricalMoves;
+    }
+
+    /**
+     * 高采样率的触摸屏上，一个 move 事件里会带多个历史采样，开启后逐个采样计算阻尼。
+     *
+     * @param consume
+     */
+    public void setConsumeHistoricalMoves(boolean consume) {
+        mConsumeHistoricalMoves = consume;
+    }
+
+    public int getHeaderHeight() {
+        return mHeaderHeight;
+    }
+
+    @SuppressWarnings({"unused"})
+    public View getHeaderView() {
+        return mHeaderView;
+    }
+
+    public void setHeaderView(View header) {
+        if (mHeaderView != null && header != null && mHeaderView != header) {
+            removeView(mHeaderView);
+        }
+        ViewGroup.LayoutParams lp = header.getLayoutParams();
+        if (lp == null) {
+            lp = new MarginLayoutParams(-1, -2);
             header.setLayoutParams(lp);
         }
         mHeaderView = header;
+        mHeaderFactory = null;
         addView(header);
     }
 
+    /**
+     * 懒加载 Header：先按 headerHeight 预留位置，第一次离开顶部或者 {@link #autoRefresh()} 时才调用 factory 创建 Header。
+     * 大部分页面用户不会下拉，可以省掉 Header 的 inflate 和 measure。
+     *
+     * @param factory
+     * @param headerHeight Header 的高度，包括 margin
+     */
+    public void setHeaderFactory(HeaderFactory factory, int headerHeight) {
+        if (mHeaderView != null) {
+            removeView(mHeaderView);
+            mHeaderView = null;
+        }
+        mHeaderFactory = factory;
+        mLazyHeaderHeight = headerHeight;
+        requestLayout();
+    }
+
+    private boolean hasHeaderView() {
+        return mHeaderView != null || mHeaderFactory != null;
+    }
+
+    /**
+     * 懒加载模式下立即创建 Header，并按当前位置完成 measure 和 layout
+     */
+    protected void ensureHeaderView() {
+        if (mHeaderView != null || mHeaderFactory == null) {
+            return;
+        }
+        final HeaderFactory factory = mHeaderFactory;
+        setHeaderView(factory.createHeader(this));
+        if (getMeasuredWidth() > 0) {
+            //不等下一次布局，这一帧就要显示
+            measureHeader(MeasureSpec.makeMeasureSpec(getMeasuredWidth(), MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(getMeasuredHeight(), MeasureSpec.EXACTLY));
+            layoutHeader(mIsTranslating ? mLayoutPosY : mRefreshIndicator.getCurrentPosY());
+        }
+    }
+
+    // NestedScrollingParent
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return mNestedScrollMode && isEnabled() && hasHeaderView()
+                && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL);
+        mNestedScrollInProgress = true;
+        mNestedReleaseVelocityY = 0;
+        mNestedOverScrollVelocityY = 0;
+        if (!mRefreshIndicator.isTouch()) {
+            mRefreshIndicator.onTouchDown(0, 0);
+            if (mTrace != null) {
+                mTrace.onTouchDown();
+            }
+            mScrollWrapper.abortIfWorking();
+        }
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        //手指往上，先把头部收回去
+        if (dy > 0 && mRefreshIndicator.hasLeftStartPosition()) {
+            mRefreshIndicator.onNestedScroll(-dy);
+            float offsetY = mRefreshIndicator.getOffsetY();
+            final int currentPos = mRefreshIndicator.getCurrentPosY();
+            if (-offsetY > currentPos) {
+                //头部收完，剩下的交给 Content
+                consumed[1] = Math.min(dy, Math.round(currentPos * mRefreshIndicator.getResistance(currentPos)));
+                offsetY = -currentPos;
+            } else {
+                consumed[1] = dy;
+            }
+            movePos(offsetY);
+        }
+
+        final int[] parentConsumed = mParentScrollConsumed;
+        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+            consumed[0] += parentConsumed[0];
+            consumed[1] += parentConsumed[1];
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, mParentOffsetInWindow);
+        //Content 已经到顶，未消费的下拉距离交给头部
+        final int dy = dyUnconsumed + mParentOffsetInWindow[1];
+        if (dy < 0) {
+            mRefreshIndicator.onNestedScroll(-dy);
+            movePos(mRefreshIndicator.getOffsetY());
+        }
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        //头部可见时由头部处理松手，Content 不再 fling
+        if (mRefreshIndicator.hasLeftStartPosition()) {
+            return true;
+        }
+        return dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        //在顶部往下 fling，松手后转换成头部回弹
+        if (velocityY < 0 && !ViewCompat.canScrollVertically(target, -1)) {
+            mNestedOverScrollVelocityY = -velocityY;
+        }
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target);
+        if (!mNestedScrollInProgress) {
+            return;
+        }
+        mNestedScrollInProgress = false;
+        mRefreshIndicator.onTouchUp();
+        if (mRefreshIndicator.hasLeftStartPosition()) {
+            onRelease(false, mNestedReleaseVelocityY);
+        } else if (mNestedOverScrollVelocityY > 0) {
+            overScrollByFling(mNestedOverScrollVelocityY);
+        }
+        commitTranslationIfIdle();
+        mNestedReleaseVelocityY = 0;
+        mNestedOverScrollVelocityY = 0;
+        stopNestedScroll();
+    }
+
+    // NestedScrollingChild
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        //View 的构造函数可能在字段初始化之前调用这里
+        if (mNestedScrollingChildHelper != null) {
+            mNestedScrollingChildHelper.setNestedScrollingEnabled(enabled);
+        }
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mNestedScrollingChildHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return mNestedScrollingChildHelper.startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        mNestedScrollingChildHelper.stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return mNestedScrollingChildHelper.hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mNestedScrollingChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mNestedScrollingChildHelper.dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    /**
+     * 由调度器决定什么时候调用 Refresh，见 {@link RefreshScheduler}。在开始刷新之前设置。
+     *
+     * @param scheduler 通常是 {@link RefreshScheduler#getInstance()}，为 null 时直接加载，默认为 null
+     */
+    public void setRefreshScheduler(RefreshScheduler scheduler) {
+        mRefreshScheduler = scheduler;
+    }
+
+    public RefreshScheduler getRefreshScheduler() {
+        return mRefreshScheduler;
+    }
+
+    /**
+     * @param key 加载的数据，key 相同的 layout 同时刷新时只加载一次，为 null 时不合并
+     */
+    public void setRefreshKey(String key) {
+        mRefreshKey = key;
+    }
+
+    public String getRefreshKey() {
+        return mRefreshKey;
+    }
+
+    /**
+     * 最后更新时间在有效期内时，{@link #autoRefresh()} 直接返回，不显示 Header 也不加载，下拉刷新不受影响。
+     * 有效期用 {@link LastUpdateTimeStore#setTtl(String, long)} 按 key 设置，没有设置时照常加载。
+     * 加载成功完成时记录这个 key 的最后更新时间，失败或被取消时不记录，和 {@link ClassicRefreshHeader#setLastUpdateTimeKey(String)} 共用同一份数据，
+     * key 相同时只由 layout 写入。
+     *
+     * @param key 为 null 时关闭
+     */
+    public void setFreshnessKey(String key) {
+        mEngine.setFreshness(key != null ? LastUpdateTimeStore.getInstance(getContext()) : null, key);
+    }
+
+    public String getFreshnessKey() {
+        return mEngine.getFreshnessKey();
+    }
+
+    /**
+     * 开启提前加载，Refresh 需要实现 {@link SpeculativeRefresh}。
+     * 下拉经过刷新距离的 ratio 时就开始加载，没有松手刷新时取消，松手刷新时加载已经进行了一段时间。
+     *
+     * @param ratio 0 ~ 1，0 表示关闭，默认关闭
+     */
+    public void setSpeculativeRefreshRatio(float ratio) {
+        mRefreshTaskRunner.setSpeculativeRatio(Math.max(0, Math.min(ratio, 1)));
+    }
+
+    public float getSpeculativeRefreshRatio() {
+        return mRefreshTaskRunner.getSpeculativeRatio();
+    }
+
+    /**
+     * 开启加载更多。Content 滑到离底部 prefetch 距离以内时回调 {@link LoadMore#onLoadMoreBegin(RefreshLayout)}，
+     * 通常下一页在用户滑到底部之前就已经返回。
+     * <p/>
+     * 支持 AbsListView、RecyclerView 和只有一个子 View 的 ScrollView 类 Content，
+     * 其他 Content 只能在滑到底部时才加载。
+     *
+     * @param loadMore 传 null 关闭
+     */
+    public void setLoadMore(LoadMore loadMore) {
+        mLoadMore = loadMore;
+        if (loadMore == null) {
+            stopObservingContent();
+        } else if (getWindowToken() != null) {
+            startObservingContent();
+        }
+    }
+
+    /**
+     * 预加载没来得及返回、用户滑到底部时显示的 Footer，没有设置时不显示
+     *
+     * @param footer 可以实现 {@link UILoadMore} 来显示加载状态
+     */
+    public void setLoadMoreFooter(View footer) {
+        if (mFooterView != null && mFooterView != footer) {
+            removeView(mFooterView);
+        }
+        mFooterView = footer;
+        if (footer == null) {
+            return;
+        }
+        ViewGroup.LayoutParams lp = footer.getLayoutParams();
+        if (lp == null) {
+            lp = new MarginLayoutParams(-1, -2);
+            footer.setLayoutParams(lp);
+        }
+        footer.setVisibility(INVISIBLE);
+        addView(footer);
+    }
+
+    public View getLoadMoreFooter() {
+        return mFooterView;
+    }
+
+    /**
+     * @param distance 离底部多少像素时开始加载下一页，默认 0，即滑到底部才加载
+     */
+    public void setLoadMorePrefetchDistance(int distance) {
+        mLoadMoreIndicator.setPrefetchDistance(distance);
+    }
+
+    /**
+     * @param items 最后一个可见条目之后不多于这么多条时开始加载下一页，传 {@link LoadMoreIndicator#UNKNOWN} 关闭
+     */
+    public void setLoadMorePrefetchItems(int items) {
+        mLoadMoreIndicator.setPrefetchItems(items);
+    }
+
+    public LoadMoreIndicator getLoadMoreIndicator() {
+        return mLoadMoreIndicator;
+    }
+
+    public boolean isLoadingMore() {
+        return mLoadingMore;
+    }
+
+    /**
+     * 下一页加载结束
+     *
+     * @param hasMore 是否还有下一页，没有时不再回调 onLoadMoreBegin，直到 {@link #setHasMore(boolean)}
+     */
+    public void loadMoreComplete(boolean hasMore) {
+        mLoadingMore = false;
+        mHasMore = hasMore;
+        if (mFooterView instanceof UILoadMore) {
+            ((UILoadMore) mFooterView).onUILoadMoreComplete(this, hasMore);
+        }
+        //新的一页还没有布局，等布局之后重新判断
+        mLoadMoreIndicator.reset();
+        updateFooterVisibility();
+    }
+
+    /**
+     * 例如下拉刷新换了第一页之后，重新开启加载更多
+     */
+    public void setHasMore(boolean hasMore) {
+        if (mHasMore == hasMore) {
+            return;
+        }
+        mHasMore = hasMore;
+        if (mFooterView instanceof UILoadMore && !mLoadingMore) {
+            ((UILoadMore) mFooterView).onUILoadMoreComplete(this, hasMore);
+        }
+        checkLoadMore();
+    }
+
+    private void startObservingContent() {
+        if (mIsObservingContent) {
+            return;
+        }
+        mIsObservingContent = true;
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(mContentObserver);
+        observer.addOnGlobalLayoutListener(mContentObserver);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void stopObservingContent() {
+        if (!mIsObservingContent) {
+            return;
+        }
+        mIsObservingContent = false;
+        final ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(mContentObserver);
+        //removeOnGlobalLayoutListener 需要 API 16
+        observer.removeGlobalOnLayoutListener(mContentObserver);
+    }
+
+    /**
+     * Content 滚动或者布局变化后，更新离底部的距离，进入预加载范围时开始加载
+     */
+    private void checkLoadMore() {
+        if (mLoadMore == null || mContentView == null) {
+            return;
+        }
+        mLoadMoreIndicator.setPosition(computeDistanceToEnd(mContentView), computeItemsToEnd(mContentView));
+        if (mLoadMoreIndicator.shouldLoadMore(mLoadingMore, mHasMore, mEngine.isRefreshing())) {
+            mLoadingMore = true;
+            if (mFooterView instanceof UILoadMore) {
+                ((UILoadMore) mFooterView).onUILoadMoreBegin(this);
+            }
+            mLoadMore.onLoadMoreBegin(this);
+        }
+        updateFooterVisibility();
+    }
+
+    //VISIBLE 和 INVISIBLE 之间切换不会触发布局
+    private void updateFooterVisibility() {
+        if (mFooterView == null) {
+            return;
+        }
+        final boolean show = mLoadMoreIndicator.shouldShowFooter(mLoadingMore, mHasMore);
+        final int visibility = show ? VISIBLE : INVISIBLE;
+        if (mFooterView.getVisibility() != visibility) {
+            mFooterView.setVisibility(visibility);
+        }
+    }
+
+    private static int computeDistanceToEnd(View content) {
+        if (content instanceof AbsListView) {
+            final AbsListView listView = (AbsListView) content;
+            final int childCount = listView.getChildCount();
+            if (childCount == 0) {
+                return 0;
+            }
+            final View lastChild = listView.getChildAt(childCount - 1);
+            final int visibleDistance = lastChild.getBottom() - (listView.getHeight() - listView.getPaddingBottom());
+            final int itemsBelow = listView.getCount() - 1 - listView.getLastVisiblePosition();
+            //看不到的条目按可见条目的平均高度估算
+            return Math.max(0, visibleDistance) + itemsBelow * (lastChild.getBottom() - listView.getChildAt(0).getTop()) / childCount;
+        }
+        if (content instanceof RecyclerView) {
+            final RecyclerView recyclerView = (RecyclerView) content;
+            return recyclerView.computeVerticalScrollRange() - recyclerView.computeVerticalScrollOffset() - recyclerView.computeVerticalScrollExtent();
+        }
+        if ((content instanceof ScrollView || content instanceof NestedScrollView) && ((ViewGroup) content).getChildCount() == 1) {
+            //其他不能滚动的 ViewGroup 按 canScrollVertically 判断，否则内容不满一屏时会一直加载
+            final View child = ((ViewGroup) content).getChildAt(0);
+            return child.getBottom() + content.getPaddingBottom() - content.getScrollY() - content.getHeight();
+        }
+        return ViewCompat.canScrollVertically(content, 1) ? Integer.MAX_VALUE : 0;
+    }
+
+    private static int computeItemsToEnd(View content) {
+        if (content instanceof AbsListView) {
+            final AbsListView listView = (AbsListView) content;
+            return listView.getCount() - 1 - listView.getLastVisiblePosition();
+        }
+        if (content instanceof RecyclerView) {
+            final RecyclerView recyclerView = (RecyclerView) content;
+            final int childCount = recyclerView.getChildCount();
+            final RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+            if (childCount == 0 || adapter == null) {
+                return LoadMoreIndicator.UNKNOWN;
+            }
+            final int lastPosition = recyclerView.getChildAdapterPosition(recyclerView.getChildAt(childCount - 1));
+            return lastPosition == RecyclerView.NO_POSITION ? LoadMoreIndicator.UNKNOWN : adapter.getItemCount() - 1 - lastPosition;
+        }
+        return LoadMoreIndicator.UNKNOWN;
+    }
+
+    /**
+     * 在 {@link RefreshScheduler} 中排队的 layout，排队期间监听滚动和布局，ViewPager 切到这一页时开始加载
+     */
+    private class SchedulerClient implements RefreshScheduler.Client, ViewTreeObserver.OnScrollChangedListener, ViewTreeObserver.OnGlobalLayoutListener {
+        private final Rect mVisibleRect = new Rect();
+        private boolean mIsWaiting = false;//已经进入刷新，还没轮到加载
+        private boolean mIsObserving = false;
+
+        void submit() {
+            mIsWaiting = true;
+            if (getWindowToken() != null) {
+                startObserving();
+            }
+            mRefreshScheduler.submit(this);
+        }
+
+        void finish(boolean succeeded) {
+            mIsWaiting = false;
+            stopObserving();
+            mRefreshScheduler.finish(this, succeeded);
+        }
+
+        /**
+         * 离开窗口时总是让出位置：手动调用 refreshComplete 的 Refresh 在页面销毁后可能不再结束刷新，
+         * 一直占着位置会挡住其他 layout 的加载。之后再调用 refreshComplete 时 finish 不做任何事
+         */
+        void detach() {
+            stopObserving();
+            mRefreshScheduler.remove(this);
+        }
+
+        void checkVisibility() {
+            if (mIsWaiting && mRefreshScheduler != null) {
+                mRefreshScheduler.onVisibilityChanged();
+            }
+        }
+
+        @Override
+        public String getRefreshKey() {
+            return mRefreshKey;
+        }
+
+        @Override
+        public boolean isVisibleToUser() {
+            return getWindowToken() != null && isShown() && getGlobalVisibleRect(mVisibleRect);
+        }
+
+        @Override
+        public void onRefreshStart() {
+            mIsWaiting = false;
+            stopObserving();
+            startRefresh();
+        }
+
+        @Override
+        public void onMergedRefreshComplete(boolean succeeded) {
+            mIsWaiting = false;
+            stopObserving();
+            refreshComplete(succeeded);
+        }
+
+        @Override
+        public void onScrollChanged() {
+            checkVisibility();
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            checkVisibility();
+        }
+
+        private void startObserving() {
+            if (mIsObserving) {
+                return;
+            }
+            mIsObserving = true;
+            final ViewTreeObserver observer = getViewTreeObserver();
+            observer.addOnScrollChangedListener(this);
+            observer.addOnGlobalLayoutListener(this);
+        }
+
+        @SuppressWarnings("deprecation")
+        private void stopObserving() {
+            if (!mIsObserving) {
+                return;
+            }
+            mIsObserving = false;
+            final ViewTreeObserver observer = getViewTreeObserver();
+            observer.removeOnScrollChangedListener(this);
+            observer.removeGlobalOnLayoutListener(this);
+        }
+    }
+
+    private class ContentObserver implements ViewTreeObserver.OnScrollChangedListener, ViewTreeObserver.OnGlobalLayoutListener {
+        @Override
+        public void onScrollChanged() {
+            checkLoadMore();
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            checkLoadMore();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mLoadMore != null) {
+            startObservingContent();
+        }
+        mRefreshTaskRunner.onAttached();
+        if (mRefreshScheduler != null && mSchedulerClient.mIsWaiting) {
+            mSchedulerClient.submit();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        //View 的构造函数可能在字段初始化之前调用这里
+        if (mSchedulerClient != null) {
+            mSchedulerClient.checkVisibility();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (mSchedulerClient != null) {
+            mSchedulerClient.checkVisibility();
+        }
+    }
+
     @Override
     protected void onDetachedFromWindow() {
+        stopObservingContent();
+        mRefreshTaskRunner.onDetached();
+        if (mRefreshScheduler != null) {
+            //排队中的加载重新进入窗口时再排队，正在加载的让出位置给合并的 layout 或者下一个 layout
+            mSchedulerClient.detach();
+        }
         if (mScrollWrapper != null) {
             mScrollWrapper.destroy();
         }
         if (mPerformRefreshCompleteDelay != null) {
             removeCallbacks(mPerformRefreshCompleteDelay);
         }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
         super.onDetachedFromWindow();
     }
 }
@@ -0,0 +1,169 @@
+package com.tony.refreshview.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 下拉刷新的性能数据：每帧耗时、掉帧、UIRefresh 回调耗时、刷新各阶段的延迟。
+ * <p/>
+ * 通过 {@link RefreshLayout#setMetrics(RefreshMetrics)} 开启，没有设置时 RefreshLayout 只多一次判空，不计时也不记录。
+ * <p/>
+ * 数据写入一个单生产者单消费者的无锁环形缓冲区：UI 线程写入，应用在任意一个线程定期调用
+ * {@link #drain(Reader)} 读出。写入不加锁也不分配对象，缓冲区满时丢弃新数据并计入 {@link #getOverflowCount()}。
+ * 同一个实例可以给多个 RefreshLayout 共用，只要它们都在 UI 线程。
+ */
+public final class RefreshMetrics {
+    /**
+     * 一次 movePos 的耗时，value 单位 ns
+     */
+    public static final int TYPE_MOVE = 1;
+    /**
+     * 滚动动画一帧的耗时，value 单位 ns
+     */
+    public static final int TYPE_SCROLL_FRAME = 2;
+    /**
+     * 一次滚动动画中掉的帧数，value 为帧数，extra 为动画的总帧数
+     */
+    public static final int TYPE_DROPPED_FRAMES = 3;
+    /**
+     * 一个 UIRefresh 回调的耗时，value 单位 ns，source 为 handler，extra 为 {@link UIRefreshSubscriber} 中的 EVENT_*
+     */
+    public static final int TYPE_HANDLER = 4;
+    /**
+     * 从离开顶部（或自动刷新开始）到开始加载的时间，value 单位 ns
+     */
+    public static final int TYPE_PULL_TO_LOADING = 5;
+    /**
+     * 从开始加载到刷新完成的时间，value 单位 ns
+     */
+    public static final int TYPE_LOADING_TO_COMPLETE = 6;
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667L;
+
+    public interface Reader {
+        /**
+         * @param type      TYPE_*
+         * @param value     数值，单位见 TYPE_*
+         * @param timeNanos 记录时的 {@link System#nanoTime()}
+         * @param source    TYPE_HANDLER 时为 handler，其他为 null
+         * @param extra     附加数据，见 TYPE_*
+         */
+        void onMetric(int type, long value, long timeNanos, Object source, int extra);
+    }
+
+    private final int mMask;
+    private final int[] mTypes;
+    private final long[] mValues;
+    private final long[] mTimes;
+    private final Object[] mSources;
+    private final int[] mExtras;
+
+    //写指针只由生产者修改，读指针只由消费者修改，lazySet 保证槽位的数据先于指针可见
+    private final AtomicLong mWriteIndex = new AtomicLong();
+    private final AtomicLong mReadIndex = new AtomicLong();
+    private final AtomicLong mOverflow = new AtomicLong();
+
+    private volatile long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
+    public RefreshMetrics() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 缓冲区大小，向上取整到 2 的幂
+     */
+    public RefreshMetrics(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("RefreshMetrics capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mMask = size - 1;
+        mTypes = new int[size];
+        mValues = new long[size];
+        mTimes = new long[size];
+        mSources = new Object[size];
+        mExtras = new int[size];
+    }
+
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * 用来计算掉帧的帧间隔，默认 60fps
+     */
+    public void setFrameIntervalNanos(long intervalNanos) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("frame interval must be positive");
+        }
+        mFrameIntervalNanos = intervalNanos;
+    }
+
+    public long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+
+    /**
+     * 生产者线程调用
+     */
+    public void record(int type, long value) {
+        record(type, value, null, 0);
+    }
+
+    /**
+     * 生产者线程调用
+     *
+     * @return 是否写入，缓冲区满时返回 false
+     */
+    public boolean record(int type, long value, Object source, int extra) {
+        final long write = mWriteIndex.get();
+        if (write - mReadIndex.get() > mMask) {
+            mOverflow.lazySet(mOverflow.get() + 1);
+            return false;
+        }
+        final int slot = (int) write & mMask;
+        mTypes[slot] = type;
+        mValues[slot] = value;
+        mTimes[slot] = System.nanoTime();
+        mSources[slot] = source;
+        mExtras[slot] = extra;
+        mWriteIndex.lazySet(write + 1);
+        return true;
+    }
+
+    /**
+     * 消费者线程调用，读出当前所有数据
+     *
+     * @return 读出的条数
+     */
+    public int drain(Reader reader) {
+        final long read = mReadIndex.get();
+        final long write = mWriteIndex.get();
+        for (long i = read; i < write; i++) {
+            final int slot = (int) i & mMask;
+            final Object source = mSources[slot];
+            //不持有 handler 的引用
+            mSources[slot] = null;
+            reader.onMetric(mTypes[slot], mValues[slot], mTimes[slot], source, mExtras[slot]);
+        }
+        mReadIndex.lazySet(write);
+        return (int) (write - read);
+    }
+
+    /**
+     * @return 还没有读出的条数，近似值
+     */
+    public int size() {
+        return (int) (mWriteIndex.get() - mReadIndex.get());
+    }
+
+    /**
+     * @return 缓冲区满时丢弃的条数
+     */
+    public long getOverflowCount() {
+        return mOverflow.get();
+    }
+}
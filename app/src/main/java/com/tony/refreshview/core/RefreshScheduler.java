@@ -0,0 +1,252 @@
+package com.tony.refreshview.core;
+
+import java.util.ArrayList;
+
+/**
+ * 多个 RefreshLayout 共享的刷新调度，用 {@link RefreshLayout#setRefreshScheduler(RefreshScheduler)} 开启。
+ * <p/>
+ * RefreshLayout 进入刷新后不直接调用 Refresh，而是交给调度器：
+ * <ul>
+ * <li>同时加载的数量不超过 maxRunning，其余排队</li>
+ * <li>key 相同的刷新合并成一次加载，只调用第一个 layout 的 Refresh，加载结束时其他 layout 一起结束刷新</li>
+ * <li>不在窗口中或者用户看不到的 layout 一直排队，直到它可见，例如 ViewPager 中没有显示的页面</li>
+ * <li>合并的 layout 中有可见的时，由可见的那个负责加载</li>
+ * </ul>
+ * Header 照常显示刷新中，只有加载被推迟。所有方法都在 UI 线程调用。
+ * <p/>
+ * {@link SpeculativeRefresh} 在下拉过程中提前开始的加载不经过调度器，不受 maxRunning 限制，也不和相同 key 的刷新合并：
+ * 它由用户的手势触发，推迟它就失去了提前加载的意义。松手刷新时直接使用这个加载，同样不再排队。
+ */
+public class RefreshScheduler {
+    public static final int DEFAULT_MAX_RUNNING = 2;
+
+    private static RefreshScheduler sInstance;
+
+    /**
+     * 调度器看到的 RefreshLayout
+     */
+    interface Client {
+        /**
+         * @return 加载的数据的 key，为 null 时不合并
+         */
+        String getRefreshKey();
+
+        boolean isVisibleToUser();
+
+        /**
+         * 轮到这个 client 加载
+         */
+        void onRefreshStart();
+
+        /**
+         * 合并到的加载已经结束
+         *
+         * @param succeeded owner 的加载是否成功
+         */
+        void onMergedRefreshComplete(boolean succeeded);
+    }
+
+    /**
+     * 一次加载，owner 负责加载，followers 等待它结束
+     */
+    private static class Group {
+        final String mKey;
+        Client mOwner;
+        final ArrayList<Client> mFollowers = new ArrayList<Client>();
+
+        Group(String key, Client owner) {
+            mKey = key;
+            mOwner = owner;
+        }
+
+        boolean contains(Client client) {
+            return mOwner == client || mFollowers.contains(client);
+        }
+
+        /**
+         * owner 看不到时换成可见的 follower
+         *
+         * @return 是否有可见的 client
+         */
+        boolean pickVisibleOwner() {
+            if (mOwner.isVisibleToUser()) {
+                return true;
+            }
+            for (int i = 0; i < mFollowers.size(); i++) {
+                final Client follower = mFollowers.get(i);
+                if (follower.isVisibleToUser()) {
+                    mFollowers.set(i, mOwner);
+                    mOwner = follower;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final ArrayList<Group> mPending = new ArrayList<Group>();
+    private final ArrayList<Group> mRunning = new ArrayList<Group>();
+    private int mMaxRunning;
+
+    /**
+     * 进程内共享的调度器，在 UI 线程调用
+     */
+    public static RefreshScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new RefreshScheduler(DEFAULT_MAX_RUNNING);
+        }
+        return sInstance;
+    }
+
+    public RefreshScheduler(int maxRunning) {
+        setMaxRunning(maxRunning);
+    }
+
+    /**
+     * @param maxRunning 同时加载的最大数量，至少为 1
+     */
+    public void setMaxRunning(int maxRunning) {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("maxRunning must be at least 1");
+        }
+        mMaxRunning = maxRunning;
+        schedule();
+    }
+
+    public int getMaxRunning() {
+        return mMaxRunning;
+    }
+
+    public int getRunningCount() {
+        return mRunning.size();
+    }
+
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * client 进入刷新，合并、排队或者立即开始
+     */
+    void submit(Client client) {
+        if (findGroup(client) != null) {
+            return;
+        }
+        final String key = client.getRefreshKey();
+        Group group = key != null ? findGroup(key) : null;
+        if (group != null) {
+            group.mFollowers.add(client);
+        } else {
+            mPending.add(new Group(key, client));
+        }
+        schedule();
+    }
+
+    /**
+     * client 结束刷新。owner 结束时 followers 一起结束
+     *
+     * @param succeeded 加载是否成功，原样传给 followers
+     */
+    void finish(Client client, boolean succeeded) {
+        final Group group = findGroup(client);
+        if (group == null) {
+            return;
+        }
+        if (group.mOwner != client) {
+            group.mFollowers.remove(client);
+            return;
+        }
+        if (!mRunning.remove(group)) {
+            //还没开始加载就结束了，没有加载结果给 followers
+            remove(client);
+            return;
+        }
+        final ArrayList<Client> followers = new ArrayList<Client>(group.mFollowers);
+        group.mFollowers.clear();
+        for (int i = 0; i < followers.size(); i++) {
+            followers.get(i).onMergedRefreshComplete(succeeded);
+        }
+        schedule();
+    }
+
+    /**
+     * client 离开窗口，不再等待。owner 离开时由第一个 follower 重新排队加载
+     */
+    void remove(Client client) {
+        final Group group = findGroup(client);
+        if (group == null) {
+            return;
+        }
+        if (group.mOwner != client) {
+            group.mFollowers.remove(client);
+            return;
+        }
+        final boolean running = mRunning.remove(group);
+        mPending.remove(group);
+        if (!group.mFollowers.isEmpty()) {
+            group.mOwner = group.mFollowers.remove(0);
+            if (running) {
+                //已经等了一次加载，排在最前面
+                mPending.add(0, group);
+            } else {
+                mPending.add(group);
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * 排队中的 client 可见性可能变化了
+     */
+    void onVisibilityChanged() {
+        schedule();
+    }
+
+    private void schedule() {
+        //onRefreshStart 中可能同步结束刷新并重新进入这里，每次循环都重新查找
+        while (mRunning.size() < mMaxRunning) {
+            Group next = null;
+            for (int i = 0; i < mPending.size(); i++) {
+                final Group group = mPending.get(i);
+                if (group.pickVisibleOwner()) {
+                    next = group;
+                    break;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            mPending.remove(next);
+            mRunning.add(next);
+            next.mOwner.onRefreshStart();
+        }
+    }
+
+    private Group findGroup(Client client) {
+        for (int i = 0; i < mRunning.size(); i++) {
+            if (mRunning.get(i).contains(client)) {
+                return mRunning.get(i);
+            }
+        }
+        for (int i = 0; i < mPending.size(); i++) {
+            if (mPending.get(i).contains(client)) {
+                return mPending.get(i);
+            }
+        }
+        return null;
+    }
+
+    private Group findGroup(String key) {
+        for (int i = 0; i < mRunning.size(); i++) {
+            if (key.equals(mRunning.get(i).mKey)) {
+                return mRunning.get(i);
+            }
+        }
+        for (int i = 0; i < mPending.size(); i++) {
+            if (key.equals(mPending.get(i).mKey)) {
+                return mPending.get(i);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.tony.refreshview.core;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次加载，由 {@link AsyncRefresh#onRefreshTask(RefreshLayout)} 返回。
+ * <p/>
+ * 加载结束时在任意线程调用 {@link #complete()}，RefreshLayout 会回到 UI 线程自动结束刷新。
+ * 加载失败时调用 {@link #fail()}，同样结束刷新，但不记录最后更新时间，下一次 autoRefresh 照常加载。
+ * RefreshLayout 离开窗口时调用 {@link #cancel()}，子类在 {@link #onCancel()} 中中断网络请求。
+ * 应用也可以自己 cancel，RefreshLayout 同样会回到 UI 线程结束刷新。
+ * <p/>
+ * 状态只会从 RUNNING 变成 DONE、FAILED 或 CANCELLED 一次，用 CAS 保证 complete、fail 和 cancel 并发时只有一个生效。
+ */
+public class RefreshTask {
+    private static final int STATE_RUNNING = 0;
+    private static final int STATE_DONE = 1;
+    private static final int STATE_CANCELLED = 2;
+    private static final int STATE_FAILED = 3;
+
+    interface Callback {
+        /**
+         * 任务 complete、fail 或 cancel 之后，在调用的线程回调
+         */
+        void onTaskDone(RefreshTask task);
+    }
+
+    private final AtomicInteger mState = new AtomicInteger(STATE_RUNNING);
+    private volatile Callback mCallback;
+
+    /**
+     * 包装一个 Future，取消时中断它。Future 结束时仍需要调用 {@link #complete()}。
+     *
+     * @param future
+     */
+    public static RefreshTask forFuture(final Future<?> future) {
+        return new RefreshTask() {
+            @Override
+            protected void onCancel() {
+                future.cancel(true);
+            }
+        };
+    }
+
+    /**
+     * 加载结束，可以在任意线程调用
+     *
+     * @return 是否生效，已经结束或被取消时返回 false
+     */
+    public final boolean complete() {
+        return finish(STATE_DONE);
+    }
+
+    /**
+     * 加载失败，可以在任意线程调用
+     *
+     * @return 是否生效，已经结束或被取消时返回 false
+     */
+    public final boolean fail() {
+        return finish(STATE_FAILED);
+    }
+
+    private boolean finish(int state) {
+        if (!mState.compareAndSet(STATE_RUNNING, state)) {
+            return false;
+        }
+        final Callback callback = mCallback;
+        if (callback != null) {
+            callback.onTaskDone(this);
+        }
+        return true;
+    }
+
+    /**
+     * 取消加载，可以在任意线程调用
+     *
+     * @return 是否生效，已经结束或被取消时返回 false
+     */
+    public final boolean cancel() {
+        if (!mState.compareAndSet(STATE_RUNNING, STATE_CANCELLED)) {
+            return false;
+        }
+        onCancel();
+        final Callback callback = mCallback;
+        if (callback != null) {
+            callback.onTaskDone(this);
+        }
+        return true;
+    }
+
+    /**
+     * 被取消时在调用 {@link #cancel()} 的线程回调，在这里中断加载
+     */
+    protected void onCancel() {
+    }
+
+    public boolean isRunning() {
+        return mState.get() == STATE_RUNNING;
+    }
+
+    public boolean isDone() {
+        return mState.get() == STATE_DONE;
+    }
+
+    public boolean isCancelled() {
+        return mState.get() == STATE_CANCELLED;
+    }
+
+    public boolean isFailed() {
+        return mState.get() == STATE_FAILED;
+    }
+
+    /**
+     * 设置之前已经结束的任务不会再回调，调用方需要自己检查 {@link #isRunning()}
+     */
+    void setCallback(Callback callback) {
+        mCallback = callback;
+    }
+}
@@ -0,0 +1,170 @@
+package com.tony.refreshview.core;
+
+/**
+ * RefreshLayout 中 {@link AsyncRefresh} 任务的管理：同一时间只有一个任务，任务结束后回到 UI 线程结束刷新，
+ * 离开窗口时取消，重新进入窗口时结束被取消的刷新。
+ * <p/>
+ * 不依赖 Android，线程切换通过 {@link Host} 交给容器完成，JVM 上的测试可以直接驱动。
+ * 除 {@link Host#postTaskDone()} 以外都在 UI 线程调用。
+ */
+class RefreshTaskRunner {
+
+    interface Host {
+        /**
+         * 回到 UI 线程调用 {@link #onTaskDone()}，会在任意线程调用
+         */
+        void postTaskDone();
+
+        /**
+         * 移除还没执行的 {@link #postTaskDone()}
+         */
+        void removeTaskDone();
+
+        boolean isRefreshing();
+
+        /**
+         * @param succeeded 任务是否成功完成，失败或被取消时为 false
+         */
+        void refreshComplete(boolean succeeded);
+    }
+
+    private final Host mHost;
+    //任务在任意线程 complete 或 cancel，回到 UI 线程结束刷新
+    private final RefreshTask.Callback mCallback = new RefreshTask.Callback() {
+        @Override
+        public void onTaskDone(RefreshTask task) {
+            mHost.postTaskDone();
+        }
+    };
+    private RefreshTask mTask;
+    private boolean mCancelledByDetach = false;//离开窗口时取消了加载，重新进入窗口时结束刷新
+    private boolean mSpeculative = false;//mTask 是下拉过程中提前开始的，还没有松手刷新
+    private float mSpeculativeRatio = 0;//下拉到刷新距离的这个比例时提前加载，0 表示关闭
+
+    RefreshTaskRunner(Host host) {
+        mHost = host;
+    }
+
+    RefreshTask getTask() {
+        return mTask;
+    }
+
+    boolean isSpeculative() {
+        return mSpeculative;
+    }
+
+    void setSpeculativeRatio(float ratio) {
+        mSpeculativeRatio = ratio;
+    }
+
+    float getSpeculativeRatio() {
+        return mSpeculativeRatio;
+    }
+
+    /**
+     * 开始刷新的加载。已经有任务在加载时不再创建新任务，等待它结束。
+     *
+     * @return 是否有任务，onRefreshTask 返回 null 时为 false，由调用者退回到 {@link Refresh#onRefreshBegin(RefreshLayout)}
+     */
+    boolean start(AsyncRefresh refresh, RefreshLayout layout) {
+        if (mSpeculative) {
+            //松手刷新，提前开始的加载就是这次刷新的加载
+            mSpeculative = false;
+            if (!mTask.isRunning()) {
+                mHost.postTaskDone();
+            }
+            return true;
+        }
+        if (mTask != null && mTask.isRunning()) {
+            return true;
+        }
+        final RefreshTask task = refresh.onRefreshTask(layout);
+        mTask = task;
+        if (task == null) {
+            return false;
+        }
+        task.setCallback(mCallback);
+        if (!task.isRunning()) {
+            //在 onRefreshTask 中就已经结束
+            mHost.postTaskDone();
+        }
+        return true;
+    }
+
+    /**
+     * 手指下拉中，经过刷新距离的 {@link #mSpeculativeRatio} 时提前开始加载。已经有任务时不再开始
+     */
+    void onPull(SpeculativeRefresh refresh, RefreshLayout layout, int posY, int offsetToRefresh) {
+        if (mSpeculativeRatio <= 0 || mTask != null) {
+            return;
+        }
+        if (posY < offsetToRefresh * mSpeculativeRatio) {
+            return;
+        }
+        final RefreshTask task = refresh.onSpeculativeRefresh(layout);
+        if (task != null) {
+            mTask = task;
+            mSpeculative = true;
+            task.setCallback(mCallback);
+        }
+    }
+
+    /**
+     * 没有松手刷新就回到了顶部，取消提前开始的加载
+     */
+    void cancelSpeculative() {
+        if (mSpeculative) {
+            final RefreshTask task = mTask;
+            mSpeculative = false;
+            mTask = null;
+            task.cancel();
+        }
+    }
+
+    /**
+     * {@link Host#postTaskDone()} 回到 UI 线程后调用
+     */
+    void onTaskDone() {
+        final RefreshTask task = mTask;
+        if (task == null || task.isRunning()) {
+            return;
+        }
+        if (mSpeculative) {
+            if (task.isCancelled()) {
+                //还在下拉时被取消，松手刷新时重新加载
+                mSpeculative = false;
+                mTask = null;
+            }
+            //提前开始的加载在松手刷新之前完成，等松手时再结束刷新
+            return;
+        }
+        //完成、失败和被取消都结束刷新，只有完成时记录最后更新时间
+        mTask = null;
+        mHost.refreshComplete(task.isDone());
+    }
+
+    /**
+     * 离开窗口，取消正在进行的加载
+     */
+    void onDetached() {
+        final RefreshTask task = mTask;
+        if (task == null) {
+            return;
+        }
+        //已经完成但还没回到 UI 线程的任务同样在重新进入窗口时结束
+        mTask = null;
+        mSpeculative = false;
+        mCancelledByDetach = true;
+        task.cancel();
+        mHost.removeTaskDone();
+    }
+
+    void onAttached() {
+        if (mCancelledByDetach) {
+            mCancelledByDetach = false;
+            if (mHost.isRefreshing()) {
+                mHost.refreshComplete(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.tony.refreshview.core;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * 一次刷新的各个阶段的耗时，用来区分慢在哪里：手势、我们自己的回调，还是网络。
+ * <p/>
+ * 时间点：手势开始（按下或自动刷新）-> 越过刷新线 -> 开始加载（{@link Refresh#onRefreshBegin}）
+ * -> 数据返回（{@link RefreshLayout#refreshComplete()}）-> 头部完全收回。
+ * 相邻时间点之间是一个 span，刷新结束时依次交给 {@link Sink}，时间都是 {@link System#nanoTime()}。
+ * 没有进入加载就回到顶部的手势不产生 span，合并到其他 layout 的加载（{@link RefreshScheduler}）同样不产生。
+ * <p/>
+ * API 18 以上同时输出到 android.os.Trace：{@link Refresh#onRefreshBegin} 是一个完整的 section，
+ * 各个时间点是一个空的 section，在 systrace / Perfetto 中显示为标记。
+ * 跨越多帧的 span 需要异步 section（API 29），所以只交给 Sink。
+ * <p/>
+ * 通过 {@link RefreshLayout#setTrace(RefreshTrace)} 开启，只在 UI 线程使用。
+ */
+public class RefreshTrace {
+    //手势开始 -> 越过刷新线
+    public static final int SPAN_PULL = 0;
+    //越过刷新线 -> 开始加载，下拉刷新模式下为 0。在 RefreshScheduler 中排队的时间也算在这里
+    public static final int SPAN_RELEASE = 1;
+    //Refresh.onRefreshBegin 本身的耗时
+    public static final int SPAN_REFRESH_BEGIN = 2;
+    //开始加载 -> 数据返回
+    public static final int SPAN_LOADING = 3;
+    //数据返回 -> 头部完全收回，包含最短加载时间的等待和回弹动画
+    public static final int SPAN_CLOSE = 4;
+    //手势开始 -> 头部完全收回
+    public static final int SPAN_TOTAL = 5;
+
+    private static final String[] SPAN_NAMES = {
+            "RefreshPull", "RefreshRelease", "Refresh.onRefreshBegin", "RefreshLoading", "RefreshClose", "RefreshTotal"
+    };
+
+    public interface Sink {
+        /**
+         * 一个 span 结束
+         *
+         * @param span       SPAN_*
+         * @param startNanos 开始时间
+         * @param endNanos   结束时间
+         */
+        void onSpan(int span, long startNanos, long endNanos);
+    }
+
+    private final Sink mSink;
+    private boolean isSystraceEnabled = true;
+
+    private long mTouchDownTime;
+    private long mGestureStartTime;
+    private long mThresholdTime;
+    private long mBeginTime;
+    private long mBeginEndTime;
+    private long mDataTime;
+
+    /**
+     * @param sink 可以为空，只输出到 systrace
+     */
+    public RefreshTrace(Sink sink) {
+        mSink = sink;
+    }
+
+    public static String getSpanName(int span) {
+        return SPAN_NAMES[span];
+    }
+
+    /**
+     * 是否输出到 android.os.Trace，API 18 以下无效
+     */
+    public void setSystraceEnabled(boolean enabled) {
+        isSystraceEnabled = enabled;
+    }
+
+    private boolean isSystraceAvailable() {
+        return isSystraceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    void onTouchDown() {
+        mTouchDownTime = System.nanoTime();
+    }
+
+    /**
+     * 离开顶部或自动刷新开始
+     *
+     * @param isTouch 由触摸引起时从按下开始计时
+     */
+    void onGestureStart(boolean isTouch) {
+        reset();
+        mGestureStartTime = isTouch && mTouchDownTime != 0 ? mTouchDownTime : System.nanoTime();
+        mark("RefreshTrace:gestureStart");
+    }
+
+    void onThresholdCrossed() {
+        if (mGestureStartTime == 0 || mThresholdTime != 0) {
+            return;
+        }
+        mThresholdTime = System.nanoTime();
+        mark("RefreshTrace:threshold");
+    }
+
+    void beginRefresh() {
+        if (mGestureStartTime == 0) {
+            mGestureStartTime = System.nanoTime();
+        }
+        mBeginTime = System.nanoTime();
+        if (mThresholdTime == 0) {
+            //自动刷新或下拉刷新，越过刷新线的同时开始加载
+            mThresholdTime = mBeginTime;
+        }
+        if (isSystraceAvailable()) {
+            beginSection(SPAN_NAMES[SPAN_REFRESH_BEGIN]);
+        }
+    }
+
+    void endRefreshBegin() {
+        if (isSystraceAvailable()) {
+            endSection();
+        }
+        mBeginEndTime = System.nanoTime();
+    }
+
+    /**
+     * 数据返回，调用了 refreshComplete
+     */
+    void onDataArrived() {
+        if (mBeginTime == 0 || mDataTime != 0) {
+            return;
+        }
+        mDataTime = System.nanoTime();
+        mark("RefreshTrace:dataArrived");
+    }
+
+    /**
+     * 头部回到顶部
+     */
+    void onClosed() {
+        if (mDataTime != 0) {
+            final long closed = System.nanoTime();
+            mark("RefreshTrace:closed");
+            if (mSink != null) {
+                mSink.onSpan(SPAN_PULL, mGestureStartTime, mThresholdTime);
+                mSink.onSpan(SPAN_RELEASE, mThresholdTime, mBeginTime);
+                mSink.onSpan(SPAN_REFRESH_BEGIN, mBeginTime, mBeginEndTime);
+                mSink.onSpan(SPAN_LOADING, mBeginTime, mDataTime);
+                mSink.onSpan(SPAN_CLOSE, mDataTime, closed);
+                mSink.onSpan(SPAN_TOTAL, mGestureStartTime, closed);
+            }
+        }
+        reset();
+    }
+
+    private void reset() {
+        mGestureStartTime = 0;
+        mThresholdTime = 0;
+        mBeginTime = 0;
+        mBeginEndTime = 0;
+        mDataTime = 0;
+    }
+
+    private void mark(String name) {
+        if (isSystraceAvailable()) {
+            beginSection(name);
+            endSection();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void endSection() {
+        Trace.endSection();
+    }
+}
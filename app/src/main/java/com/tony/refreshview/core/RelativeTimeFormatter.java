@@ -0,0 +1,185 @@
+package com.tony.refreshview.core;
+
+import java.util.Calendar;
+
+/**
+ * 最后更新时间的相对时间格式化，例如 "last update: 5 minutes ago"。
+ * <p/>
+ * 文字资源在构造时解析好，格式化结果写进复用的 char 数组，不创建 String、Date 和 StringBuilder。
+ * 同时算出文字下一次会变化的时间，调用者不需要每秒刷新。
+ * <p/>
+ * 结果总是写进另一个数组，文字有变化时才交换，所以 {@link #getText()} 返回的数组在下一次返回 {@link #RESULT_CHANGED}
+ * 之前不会被修改，可以直接交给 TextView.setText(char[], int, int)。非线程安全。
+ */
+public class RelativeTimeFormatter {
+    public static final int RESULT_EMPTY = 0;//不需要显示
+    public static final int RESULT_UNCHANGED = 1;//与上一次结果相同
+    public static final int RESULT_CHANGED = 2;
+
+    /**
+     * 文字不会再变化
+     */
+    public static final long NEVER = -1;
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+
+    private final char[] mPrefix;
+    private final char[] mSecondsAgo;
+    private final char[] mMinutesAgo;
+    private final char[] mHoursAgo;
+    private final Calendar mCalendar = Calendar.getInstance();
+
+    private char[] mText = new char[64];
+    private int mTextLength;
+    private char[] mScratch = new char[64];
+    private int mScratchLength;
+    private long mNextChangeDelay = NEVER;
+
+    public RelativeTimeFormatter(String prefix, String secondsAgo, String minutesAgo, String hoursAgo) {
+        mPrefix = prefix.toCharArray();
+        mSecondsAgo = secondsAgo.toCharArray();
+        mMinutesAgo = minutesAgo.toCharArray();
+        mHoursAgo = hoursAgo.toCharArray();
+    }
+
+    /**
+     * @param lastUpdateTime 最后更新时间，-1 表示没有
+     * @param now            当前时间
+     * @return {@link #RESULT_EMPTY}、{@link #RESULT_UNCHANGED} 或 {@link #RESULT_CHANGED}
+     */
+    public int format(long lastUpdateTime, long now) {
+        if (lastUpdateTime == -1) {
+            mNextChangeDelay = NEVER;
+            return empty();
+        }
+        final long diffTime = now - lastUpdateTime;
+        if (diffTime < 0) {
+            //时钟被往回调了
+            mNextChangeDelay = SECOND;
+            return empty();
+        }
+        final int seconds = (int) (diffTime / 1000);
+        if (seconds <= 0) {
+            mNextChangeDelay = SECOND - diffTime;
+            return empty();
+        }
+
+        mScratchLength = 0;
+        append(mPrefix);
+        if (seconds < 60) {
+            appendNumber(seconds);
+            append(mSecondsAgo);
+            mNextChangeDelay = SECOND - diffTime % SECOND;
+        } else {
+            int minutes = (seconds / 60);
+            if (minutes > 60) {
+                int hours = minutes / 60;
+                if (hours > 24) {
+                    appendDate(lastUpdateTime);
+                    mNextChangeDelay = NEVER;
+                } else {
+                    appendNumber(hours);
+                    append(mHoursAgo);
+                    mNextChangeDelay = HOUR - diffTime % HOUR;
+                }
+            } else {
+                appendNumber(minutes);
+                append(mMinutesAgo);
+                mNextChangeDelay = MINUTE - diffTime % MINUTE;
+            }
+        }
+
+        if (mScratchLength == mTextLength && regionEquals(mScratch, mText, mTextLength)) {
+            return RESULT_UNCHANGED;
+        }
+        char[] text = mText;
+        mText = mScratch;
+        mTextLength = mScratchLength;
+        mScratch = text;
+        return RESULT_CHANGED;
+    }
+
+    public char[] getText() {
+        return mText;
+    }
+
+    public int getTextLength() {
+        return mTextLength;
+    }
+
+    /**
+     * @return 距离文字下一次变化的毫秒数，或者 {@link #NEVER}
+     */
+    public long getNextChangeDelay() {
+        return mNextChangeDelay;
+    }
+
+    private int empty() {
+        mTextLength = 0;
+        return RESULT_EMPTY;
+    }
+
+    private static boolean regionEquals(char[] a, char[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int length) {
+        if (mScratch.length < length) {
+            char[] scratch = new char[Math.max(length, mScratch.length * 2)];
+            System.arraycopy(mScratch, 0, scratch, 0, mScratchLength);
+            mScratch = scratch;
+        }
+    }
+
+    private void append(char[] chars) {
+        ensureCapacity(mScratchLength + chars.length);
+        System.arraycopy(chars, 0, mScratch, mScratchLength, chars.length);
+        mScratchLength += chars.length;
+    }
+
+    private void append(char c) {
+        ensureCapacity(mScratchLength + 1);
+        mScratch[mScratchLength++] = c;
+    }
+
+    private void appendNumber(int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        appendNumber(value, digits);
+    }
+
+    //固定位数，不足补 0
+    private void appendNumber(int value, int digits) {
+        ensureCapacity(mScratchLength + digits);
+        for (int i = mScratchLength + digits - 1; i >= mScratchLength; i--) {
+            mScratch[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        mScratchLength += digits;
+    }
+
+    //yyyy-MM-dd HH:mm:ss
+    private void appendDate(long time) {
+        mCalendar.setTimeInMillis(time);
+        appendNumber(mCalendar.get(Calendar.YEAR), 4);
+        append('-');
+        appendNumber(mCalendar.get(Calendar.MONTH) + 1, 2);
+        append('-');
+        appendNumber(mCalendar.get(Calendar.DAY_OF_MONTH), 2);
+        append(' ');
+        appendNumber(mCalendar.get(Calendar.HOUR_OF_DAY), 2);
+        append(':');
+        appendNumber(mCalendar.get(Calendar.MINUTE), 2);
+        append(':');
+        appendNumber(mCalendar.get(Calendar.SECOND), 2);
+    }
+}
@@ -0,0 +1,22 @@
+package com.tony.refreshview.core;
+
+/**
+ * {@link AsyncRefresh} 可以同时实现这个接口，在用户还在下拉时提前开始加载。
+ * <p/>
+ * 通过 {@link RefreshLayout#setSpeculativeRefreshRatio(float)} 开启。下拉经过刷新距离的一定比例时回调
+ * {@link #onSpeculativeRefresh(RefreshLayout)}：
+ * <ul>
+ * <li>用户继续下拉并松手刷新，这个任务就是这次刷新的加载，不会再回调 {@link AsyncRefresh#onRefreshTask(RefreshLayout)}；
+ * 任务已经完成时立即结束刷新</li>
+ * <li>用户没有拉到刷新距离就松手，回到顶部时任务被取消</li>
+ * </ul>
+ */
+public interface SpeculativeRefresh extends AsyncRefresh {
+    /**
+     * 提前开始加载，在 UI 线程调用
+     *
+     * @param refreshLayout
+     * @return 这次加载的任务，返回 null 表示不提前加载
+     */
+    RefreshTask onSpeculativeRefresh(RefreshLayout refreshLayout);
+}
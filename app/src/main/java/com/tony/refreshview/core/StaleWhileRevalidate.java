@@ -0,0 +1,329 @@
+package com.tony.refreshview.core;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 先显示缓存，再在后台刷新的数据源。
+ * <p/>
+ * {@link #load()} 的流程：
+ * <ul>
+ * <li>内存缓存命中：同步回调旧数据，开始加载，不显示 Header</li>
+ * <li>磁盘缓存命中：在 executor 中读出后回调旧数据，同样不显示 Header</li>
+ * <li>都没有命中：立即显示 Header，和原来的 autoRefresh 一样</li>
+ * </ul>
+ * 加载超过 {@link #setSlowRevalidateDelay(int)} 还没有返回时才显示 Header，并等待同一次加载，不会重复请求。
+ * 用户下拉时如果加载还在进行也是等待它，否则开始新的加载。
+ * <p/>
+ * 除 {@link Receiver} 以外的方法都在 UI 线程调用。
+ */
+public class StaleWhileRevalidate<V> extends DefaultRefresh implements AsyncRefresh {
+    private static final int DEFAULT_SLOW_REVALIDATE_DELAY = 300;
+
+    /**
+     * 从网络等数据源加载
+     */
+    public interface Fetcher<V> {
+        /**
+         * 开始加载，在 UI 线程调用。结果通过 receiver 返回，可以在任意线程。
+         *
+         * @param receiver
+         * @return 这次加载的任务，不能为 null。取消时中断加载，不需要调用 complete
+         */
+        RefreshTask fetch(Receiver<V> receiver);
+    }
+
+    /**
+     * 接收一次加载的结果，只有第一次调用生效
+     */
+    public static abstract class Receiver<V> {
+        public abstract void onResult(V value);
+
+        public abstract void onError(Throwable error);
+    }
+
+    /**
+     * 切换到 UI 线程，默认是主线程的 Handler
+     */
+    interface Poster {
+        void post(Runnable r);
+
+        void postDelayed(Runnable r, long delayMillis);
+
+        void removeCallbacks(Runnable r);
+    }
+
+    /**
+     * 数据回调，在 UI 线程
+     */
+    public interface Listener<V> {
+        /**
+         * @param value
+         * @param fresh false 表示来自缓存，之后还会收到加载返回的新数据
+         */
+        void onData(V value, boolean fresh);
+
+        /**
+         * 加载失败，界面保持之前的数据
+         *
+         * @param error
+         */
+        void onRevalidateFailed(Throwable error);
+    }
+
+    private final String mKey;
+    private final Fetcher<V> mFetcher;
+    private final Listener<V> mListener;
+    private final Poster mPoster;
+    private RefreshCache<V> mMemoryCache;
+    private RefreshCache<V> mDiskCache;
+    private Executor mDiskExecutor;
+    private int mSlowRevalidateDelay = DEFAULT_SLOW_REVALIDATE_DELAY;
+    private RefreshLayout mRefreshLayout;
+    private RefreshTask mInFlight;
+    private boolean mHasFreshData = false;//这次 load 已经收到加载返回的数据，磁盘上的旧数据不再回调
+    private int mLoadId = 0;//每次 load 加一，丢弃上一次 load 的磁盘读取结果
+    private final Runnable mShowHeaderIfSlow = new Runnable() {
+        @Override
+        public void run() {
+            showHeader();
+        }
+    };
+
+    public StaleWhileRevalidate(String key, Fetcher<V> fetcher, Listener<V> listener) {
+        this(key, fetcher, listener, new HandlerPoster());
+    }
+
+    StaleWhileRevalidate(String key, Fetcher<V> fetcher, Listener<V> listener, Poster poster) {
+        mKey = key;
+        mFetcher = fetcher;
+        mListener = listener;
+        mPoster = poster;
+    }
+
+    public void setMemoryCache(RefreshCache<V> cache) {
+        mMemoryCache = cache;
+    }
+
+    /**
+     * @param cache
+     * @param executor 磁盘读写在这里执行，不能是 UI 线程
+     */
+    public void setDiskCache(RefreshCache<V> cache, Executor executor) {
+        mDiskCache = cache;
+        mDiskExecutor = executor;
+    }
+
+    /**
+     * 有缓存时，加载超过这个时间才显示 Header
+     *
+     * @param delay 毫秒
+     */
+    public void setSlowRevalidateDelay(int delay) {
+        mSlowRevalidateDelay = delay;
+    }
+
+    public int getSlowRevalidateDelay() {
+        return mSlowRevalidateDelay;
+    }
+
+    /**
+     * 作为 layout 的 Refresh，下拉刷新也走这里
+     *
+     * @param refreshLayout
+     */
+    public void attachTo(RefreshLayout refreshLayout) {
+        mRefreshLayout = refreshLayout;
+        refreshLayout.setPtrHandler(this);
+    }
+
+    /**
+     * 进入界面时调用，代替 {@link RefreshLayout#autoRefresh()}
+     */
+    public void load() {
+        final int loadId = ++mLoadId;
+        mHasFreshData = false;
+        mPoster.removeCallbacks(mShowHeaderIfSlow);
+
+        final V memory = mMemoryCache != null ? mMemoryCache.get(mKey) : null;
+        if (memory != null) {
+            mListener.onData(memory, false);
+            if (!isRevalidating()) {
+                fetch();
+            }
+            mPoster.postDelayed(mShowHeaderIfSlow, mSlowRevalidateDelay);
+            return;
+        }
+        if (mDiskCache == null || mDiskExecutor == null) {
+            showHeader();
+            return;
+        }
+        if (!isRevalidating()) {
+            fetch();
+        }
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final V disk = mDiskCache.get(mKey);
+                mPoster.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDiskRead(loadId, disk);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 取消进行中的加载，离开界面时调用
+     */
+    public void cancel() {
+        mLoadId++;
+        mPoster.removeCallbacks(mShowHeaderIfSlow);
+        if (mInFlight != null) {
+            mInFlight.cancel();
+            mInFlight = null;
+        }
+    }
+
+    public boolean isRevalidating() {
+        return mInFlight != null && mInFlight.isRunning();
+    }
+
+    @Override
+    public RefreshTask onRefreshTask(RefreshLayout refreshLayout) {
+        mPoster.removeCallbacks(mShowHeaderIfSlow);
+        if (isRevalidating()) {
+            return mInFlight;
+        }
+        return fetch();
+    }
+
+    private void onDiskRead(int loadId, V disk) {
+        if (loadId != mLoadId || mHasFreshData) {
+            return;
+        }
+        if (disk == null) {
+            showHeader();
+            return;
+        }
+        if (mMemoryCache != null) {
+            mMemoryCache.put(mKey, disk);
+        }
+        mListener.onData(disk, false);
+        if (isRevalidating()) {
+            mPoster.postDelayed(mShowHeaderIfSlow, mSlowRevalidateDelay);
+        }
+    }
+
+    /**
+     * 显示 Header，onRefreshTask 会等待进行中的加载。
+     * 不在初始状态或者最后更新时间还没过期时 autoRefresh 不会开始刷新，这时不显示 Header 直接加载
+     */
+    void showHeader() {
+        if (mRefreshLayout != null) {
+            mRefreshLayout.autoRefresh();
+            if (mRefreshLayout.isRefreshing()) {
+                return;
+            }
+        }
+        if (!isRevalidating()) {
+            fetch();
+        }
+    }
+
+    private RefreshTask fetch() {
+        final FetchReceiver receiver = new FetchReceiver();
+        final RefreshTask task = mFetcher.fetch(receiver);
+        receiver.mTask = task;
+        mInFlight = task;
+        return task;
+    }
+
+    private void onFetchResult(RefreshTask task, V value, Throwable error) {
+        //已经取消或者已经收到过结果
+        if (task == null || !task.isRunning()) {
+            return;
+        }
+        if (task == mInFlight) {
+            mPoster.removeCallbacks(mShowHeaderIfSlow);
+        }
+        if (error == null) {
+            //取消之后返回的结果不写缓存
+            if (value != null) {
+                putCache(value);
+            }
+            mHasFreshData = true;
+            mListener.onData(value, true);
+        } else {
+            mListener.onRevalidateFailed(error);
+        }
+        //Header 正在显示时结束刷新，失败时不记录最后更新时间
+        if (error == null) {
+            task.complete();
+        } else {
+            task.fail();
+        }
+    }
+
+    private void putCache(final V value) {
+        if (mMemoryCache != null) {
+            mMemoryCache.put(mKey, value);
+        }
+        if (mDiskCache != null && mDiskExecutor != null) {
+            mDiskExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mDiskCache.put(mKey, value);
+                }
+            });
+        }
+    }
+
+    private class FetchReceiver extends Receiver<V> {
+        //fetch 返回后在 UI 线程赋值，结果总是 post 到 UI 线程之后才读，任务的状态也在那时检查
+        RefreshTask mTask;
+
+        @Override
+        public void onResult(final V value) {
+            mPoster.post(new Runnable() {
+                @Override
+                public void run() {
+                    onFetchResult(mTask, value, null);
+                }
+            });
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            mPoster.post(new Runnable() {
+                @Override
+                public void run() {
+                    onFetchResult(mTask, null, error);
+                }
+            });
+        }
+    }
+
+    private static class HandlerPoster implements Poster {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void post(Runnable r) {
+            mHandler.post(r);
+        }
+
+        @Override
+        public void postDelayed(Runnable r, long delayMillis) {
+            mHandler.postDelayed(r, delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable r) {
+            mHandler.removeCallbacks(r);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.tony.refreshview.core;
+
+/**
+ * 加载更多的 UI 接口，Footer 实现这个接口来显示加载状态。
+ */
+public interface UILoadMore {
+    /**
+     * 开始加载下一页
+     *
+     * @param refreshLayout
+     */
+    void onUILoadMoreBegin(RefreshLayout refreshLayout);
+
+    /**
+     * 下一页加载结束
+     *
+     * @param refreshLayout
+     * @param hasMore       是否还有下一页
+     */
+    void onUILoadMoreComplete(RefreshLayout refreshLayout, boolean hasMore);
+}
@@ -3,164 +3,241 @@ package com.tony.refreshview.core;
 
 import com.tony.refreshview.indicator.RefreshIndicator;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
- * A single linked list to wrap PtrUIHandler
+ * A copy-on-write array to wrap UIRefresh
+ * <p/>
+ * 实现 UI 接口 UIRefresh，封装了多个 UIRefresh，调用者可以像 Header 一样去实现 UIRefresh，
+ * 捕捉 onUIReset，onUIRefreshPrepare，onUIRefreshBegin，onUIRefreshComplete 这几个时机去实现自己的逻辑或者 UI 效果。
  * <p/>
- * 实现 UI 接口 PtrUIHandler，封装了 PtrUIHandler，并将其组织成链表的形式。
- * 之所以封装成链表的目的是作者希望调用者可以像 Header 一样去实现 PtrUIHandler，
- * 能够捕捉到 onUIReset，onUIRefreshPrepare，onUIRefreshBegin，onUIRefreshComplete
- * 这几个时机去实现自己的逻辑或者 UI 效果，而它们统一由 PtrUIHandlerHolder 来管理，你只需要
- * 通过 addHandler 方法加入到链表中即可，这一点的抽象为那些希望去做一些处理的开发者还是相当方便的。
+ * 内部是一个写时复制的数组：添加和删除时复制一份新数组并用 CAS 替换，不加锁，可以在任意线程调用；
+ * 分发时只读取一次当前数组，遍历过程中不分配对象。分发过程中添加或删除的 handler 从下一次分发开始生效。
+ * <p/>
+ * 实现了 {@link UIRefreshSubscriber} 的 handler 只会出现在它订阅的回调的数组里，订阅在添加时读取一次并和 handler 一起保存。
  */
 public class UIRefreshHolder implements UIRefresh {
 
-    private UIRefresh mRefresh;
-    private UIRefreshHolder mNext;
-
-    private boolean contains(UIRefresh handler) {
-        return mRefresh != null && mRefresh == handler;
-    }
+    private final AtomicReference<Snapshot> mSnapshot = new AtomicReference<Snapshot>(Snapshot.EMPTY);
+    private RefreshMetrics mMetrics;//为空时不计时
 
     private UIRefreshHolder() {
 
     }
 
+    public static UIRefreshHolder create() {
+        return new UIRefreshHolder();
+    }
+
     public boolean hasHandler() {
-        return mRefresh != null;
+        return mSnapshot.get().mAll.length > 0;
     }
 
-    private UIRefresh getHandler() {
-        return mRefresh;
+    /**
+     * 是否有 handler 订阅了 onUIPositionChange，没有时可以跳过位置回调
+     */
+    public boolean hasPositionHandler() {
+        return mSnapshot.get().mPositionChange.length > 0;
     }
 
-    public static void addHandler(UIRefreshHolder head, UIRefresh handler) {
+    public int size() {
+        return mSnapshot.get().mAll.length;
+    }
 
-        if (null == handler) {
-            return;
-        }
-        if (head == null) {
-            return;
+    /**
+     * @param handler
+     * @return 是否添加成功，重复添加返回 false
+     */
+    public boolean add(UIRefresh handler) {
+        if (handler == null) {
+            return false;
         }
-        if (null == head.mRefresh) {
-            head.mRefresh = handler;
-            return;
+        for (; ; ) {
+            final Snapshot current = mSnapshot.get();
+            final UIRefresh[] all = current.mAll;
+            if (indexOf(all, handler) >= 0) {
+                return false;
+            }
+            final UIRefresh[] next = new UIRefresh[all.length + 1];
+            System.arraycopy(all, 0, next, 0, all.length);
+            next[all.length] = handler;
+            final int[] nextEvents = new int[all.length + 1];
+            System.arraycopy(current.mEvents, 0, nextEvents, 0, all.length);
+            nextEvents[all.length] = handler instanceof UIRefreshSubscriber
+                    ? ((UIRefreshSubscriber) handler).getSubscribedEvents() : UIRefreshSubscriber.EVENT_ALL;
+            if (mSnapshot.compareAndSet(current, new Snapshot(next, nextEvents))) {
+                return true;
+            }
         }
+    }
 
-        UIRefreshHolder current = head;
-        for (; ; current = current.mNext) {
-
-            // duplicated
-            if (current.contains(handler)) {
-                return;
+    /**
+     * @param handler
+     * @return 是否删除成功
+     */
+    public boolean remove(UIRefresh handler) {
+        if (handler == null) {
+            return false;
+        }
+        for (; ; ) {
+            final Snapshot current = mSnapshot.get();
+            final UIRefresh[] all = current.mAll;
+            final int index = indexOf(all, handler);
+            if (index < 0) {
+                return false;
             }
-            if (current.mNext == null) {
-                break;
+            final UIRefresh[] next = new UIRefresh[all.length - 1];
+            System.arraycopy(all, 0, next, 0, index);
+            System.arraycopy(all, index + 1, next, index, all.length - index - 1);
+            final int[] nextEvents = new int[all.length - 1];
+            System.arraycopy(current.mEvents, 0, nextEvents, 0, index);
+            System.arraycopy(current.mEvents, index + 1, nextEvents, index, all.length - index - 1);
+            if (mSnapshot.compareAndSet(current, next.length == 0 ? Snapshot.EMPTY : new Snapshot(next, nextEvents))) {
+                return true;
             }
         }
+    }
 
-        UIRefreshHolder newHolder = new UIRefreshHolder();
-        newHolder.mRefresh = handler;
-        current.mNext = newHolder;
+    private static int indexOf(UIRefresh[] handlers, UIRefresh handler) {
+        for (int i = 0; i < handlers.length; i++) {
+            if (handlers[i] == handler) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    public static UIRefreshHolder create() {
-        return new UIRefreshHolder();
+    /**
+     * 记录每个 handler 每次回调的耗时，传 null 关闭。只在分发线程调用。
+     */
+    public void setMetrics(RefreshMetrics metrics) {
+        mMetrics = metrics;
     }
 
-    public static UIRefreshHolder removeHandler(UIRefreshHolder head, UIRefresh handler) {
-        if (head == null || handler == null || null == head.mRefresh) {
-            return head;
+    public static void addHandler(UIRefreshHolder head, UIRefresh handler) {
+        if (head == null) {
+            return;
         }
+        head.add(handler);
+    }
 
-        UIRefreshHolder current = head;
-        UIRefreshHolder pre = null;
-        do {
-
-            // delete current: link pre to next, unlink next from current;
-            // pre will no change, current move to next element;
-            if (current.contains(handler)) {
-
-                // current is head
-                if (pre == null) {
-
-                    head = current.mNext;
-                    current.mNext = null;
-
-                    current = head;
-                } else {
-
-                    pre.mNext = current.mNext;
-                    current.mNext = null;
-                    current = pre.mNext;
-                }
-            } else {
-                pre = current;
-                current = current.mNext;
-            }
-
-        } while (current != null);
-
+    /**
+     * 保留以兼容链表的写法，现在总是返回 head 本身。
+     */
+    public static UIRefreshHolder removeHandler(UIRefreshHolder head, UIRefresh handler) {
         if (head == null) {
-            head = new UIRefreshHolder();
+            return null;
         }
+        head.remove(handler);
         return head;
     }
 
     @Override
     public void onUIReset(RefreshLayout frame) {
-        UIRefreshHolder current = this;
-        do {
-            final UIRefresh handler = current.getHandler();
-            if (null != handler) {
-                handler.onUIReset(frame);
+        final UIRefresh[] handlers = mSnapshot.get().mReset;
+        final RefreshMetrics metrics = mMetrics;
+        for (int i = 0; i < handlers.length; i++) {
+            final long start = metrics != null ? System.nanoTime() : 0;
+            handlers[i].onUIReset(frame);
+            if (metrics != null) {
+                metrics.record(RefreshMetrics.TYPE_HANDLER, System.nanoTime() - start, handlers[i], UIRefreshSubscriber.EVENT_RESET);
             }
-        } while ((current = current.mNext) != null);
+        }
     }
 
     @Override
     public void onUIRefreshPrepare(RefreshLayout frame) {
-        if (!hasHandler()) {
-            return;
-        }
-        UIRefreshHolder current = this;
-        do {
-            final UIRefresh handler = current.getHandler();
-            if (null != handler) {
-                handler.onUIRefreshPrepare(frame);
+        final UIRefresh[] handlers = mSnapshot.get().mPrepare;
+        final RefreshMetrics metrics = mMetrics;
+        for (int i = 0; i < handlers.length; i++) {
+            final long start = metrics != null ? System.nanoTime() : 0;
+            handlers[i].onUIRefreshPrepare(frame);
+            if (metrics != null) {
+                metrics.record(RefreshMetrics.TYPE_HANDLER, System.nanoTime() - start, handlers[i], UIRefreshSubscriber.EVENT_PREPARE);
             }
-        } while ((current = current.mNext) != null);
+        }
     }
 
     @Override
     public void onUIRefreshBegin(RefreshLayout frame) {
-        UIRefreshHolder current = this;
-        do {
-            final UIRefresh handler = current.getHandler();
-            if (null != handler) {
-                handler.onUIRefreshBegin(frame);
+        final UIRefresh[] handlers = mSnapshot.get().mBegin;
+        final RefreshMetrics metrics = mMetrics;
+        for (int i = 0; i < handlers.length; i++) {
+            final long start = metrics != null ? System.nanoTime() : 0;
+            handlers[i].onUIRefreshBegin(frame);
+            if (metrics != null) {
+                metrics.record(RefreshMetrics.TYPE_HANDLER, System.nanoTime() - start, handlers[i], UIRefreshSubscriber.EVENT_BEGIN);
             }
-        } while ((current = current.mNext) != null);
+        }
     }
 
     @Override
     public void onUIRefreshComplete(RefreshLayout frame) {
-        UIRefreshHolder current = this;
-        do {
-            final UIRefresh handler = current.getHandler();
-            if (null != handler) {
-                handler.onUIRefreshComplete(frame);
+        final UIRefresh[] handlers = mSnapshot.get().mComplete;
+        final RefreshMetrics metrics = mMetrics;
+        for (int i = 0; i < handlers.length; i++) {
+            final long start = metrics != null ? System.nanoTime() : 0;
+            handlers[i].onUIRefreshComplete(frame);
+            if (metrics != null) {
+                metrics.record(RefreshMetrics.TYPE_HANDLER, System.nanoTime() - start, handlers[i], UIRefreshSubscriber.EVENT_COMPLETE);
             }
-        } while ((current = current.mNext) != null);
+        }
     }
 
     @Override
     public void onUIPositionChange(RefreshLayout frame, boolean isUnderTouch, byte status, RefreshIndicator ptrIndicator) {
-        UIRefreshHolder current = this;
-        do {
-            final UIRefresh handler = current.getHandler();
-            if (null != handler) {
-                handler.onUIPositionChange(frame, isUnderTouch, status, ptrIndicator);
+        final UIRefresh[] handlers = mSnapshot.get().mPositionChange;
+        final RefreshMetrics metrics = mMetrics;
+        for (int i = 0; i < handlers.length; i++) {
+            final long start = metrics != null ? System.nanoTime() : 0;
+            handlers[i].onUIPositionChange(frame, isUnderTouch, status, ptrIndicator);
+            if (metrics != null) {
+                metrics.record(RefreshMetrics.TYPE_HANDLER, System.nanoTime() - start, handlers[i], UIRefreshSubscriber.EVENT_POSITION_CHANGE);
+            }
+        }
+    }
+
+    /**
+     * 不可变的快照，按回调类型分好组，分发时不需要再判断订阅
+     */
+    private static class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new UIRefresh[0], new int[0]);
+
+        final UIRefresh[] mAll;
+        final int[] mEvents;//和 mAll 一一对应的订阅
+        final UIRefresh[] mReset;
+        final UIRefresh[] mPrepare;
+        final UIRefresh[] mBegin;
+        final UIRefresh[] mComplete;
+        final UIRefresh[] mPositionChange;
+
+        Snapshot(UIRefresh[] all, int[] events) {
+            mAll = all;
+            mEvents = events;
+            mReset = filter(all, events, UIRefreshSubscriber.EVENT_RESET);
+            mPrepare = filter(all, events, UIRefreshSubscriber.EVENT_PREPARE);
+            mBegin = filter(all, events, UIRefreshSubscriber.EVENT_BEGIN);
+            mComplete = filter(all, events, UIRefreshSubscriber.EVENT_COMPLETE);
+            mPositionChange = filter(all, events, UIRefreshSubscriber.EVENT_POSITION_CHANGE);
+        }
+
+        private static UIRefresh[] filter(UIRefresh[] all, int[] events, int event) {
+            int count = 0;
+            for (int i = 0; i < all.length; i++) {
+                if ((events[i] & event) != 0) {
+                    count++;
+                }
+            }
+            if (count == all.length) {
+                return all;
             }
-        } while ((current = current.mNext) != null);
+            final UIRefresh[] handlers = new UIRefresh[count];
+            for (int i = 0, j = 0; i < all.length; i++) {
+                if ((events[i] & event) != 0) {
+                    handlers[j++] = all[i];
+                }
+            }
+            return handlers;
+        }
     }
 }
@@ -0,0 +1,21 @@
+package com.tony.refreshview.core;
+
+/**
+ * UIRefresh 可以同时实现这个接口，声明自己需要哪些回调，没有实现的 UIRefresh 接收全部回调。
+ * 例如只关心开始和结束的 handler 返回 EVENT_BEGIN | EVENT_COMPLETE，下拉过程中就不会每帧收到 onUIPositionChange。
+ * <p/>
+ * 只在 {@link RefreshLayout#addPtrUIHandler(UIRefresh)} 时读取一次，之后返回值的变化不会生效。
+ */
+public interface UIRefreshSubscriber {
+    int EVENT_RESET = 1;
+    int EVENT_PREPARE = 1 << 1;
+    int EVENT_BEGIN = 1 << 2;
+    int EVENT_COMPLETE = 1 << 3;
+    int EVENT_POSITION_CHANGE = 1 << 4;
+    int EVENT_ALL = EVENT_RESET | EVENT_PREPARE | EVENT_BEGIN | EVENT_COMPLETE | EVENT_POSITION_CHANGE;
+
+    /**
+     * @return EVENT_ 常量的组合
+     */
+    int getSubscribedEvents();
+}
@@ -0,0 +1,91 @@
+package com.tony.refreshview.indicator;
+
+/**
+ * 加载更多的指示器　记录 Content 离底部的距离
+ * <p/>
+ * 距离有两种：像素和条目数。任意一种进入预加载范围就开始加载下一页，
+ * 下一页通常在用户滑到底部之前就已经返回，底部不会出现加载中的停顿。
+ */
+public class LoadMoreIndicator {
+    public final static int UNKNOWN = -1;//不知道剩余的条目数，例如 ScrollView
+
+    private int mDistanceToEnd = Integer.MAX_VALUE;//离底部的像素
+    private int mItemsToEnd = UNKNOWN;//最后一个可见条目之后还有多少条
+    private int mPrefetchDistance = 0;//提前加载的像素距离，0 表示到底部才加载
+    private int mPrefetchItems = UNKNOWN;//提前加载的条目数，UNKNOWN 表示不按条目判断
+
+    /**
+     * 更新 Content 的位置
+     *
+     * @param distanceToEnd 离底部的像素，不小于 0
+     * @param itemsToEnd    之后还有多少条，不知道时传 {@link #UNKNOWN}
+     */
+    public void setPosition(int distanceToEnd, int itemsToEnd) {
+        mDistanceToEnd = Math.max(0, distanceToEnd);
+        mItemsToEnd = itemsToEnd;
+    }
+
+    public int getDistanceToEnd() {
+        return mDistanceToEnd;
+    }
+
+    public int getItemsToEnd() {
+        return mItemsToEnd;
+    }
+
+    public void setPrefetchDistance(int distance) {
+        mPrefetchDistance = Math.max(0, distance);
+    }
+
+    public int getPrefetchDistance() {
+        return mPrefetchDistance;
+    }
+
+    /**
+     * @param items 剩余条目不多于这个数时开始加载，传 {@link #UNKNOWN} 关闭
+     */
+    public void setPrefetchItems(int items) {
+        mPrefetchItems = items < 0 ? UNKNOWN : items;
+    }
+
+    public int getPrefetchItems() {
+        return mPrefetchItems;
+    }
+
+    //是否到了该加载下一页的位置
+    public boolean isInPrefetchRange() {
+        if (mDistanceToEnd <= mPrefetchDistance) {
+            return true;
+        }
+        return mPrefetchItems != UNKNOWN && mItemsToEnd != UNKNOWN && mItemsToEnd <= mPrefetchItems;
+    }
+
+    //是不是已经到底
+    public boolean isAtEnd() {
+        return mDistanceToEnd == 0;
+    }
+
+    /**
+     * 是否开始加载下一页。下拉刷新时不加载，避免新旧两页混在一起
+     *
+     * @param loadingMore 正在加载下一页
+     * @param hasMore     还有下一页
+     * @param refreshing  正在下拉刷新
+     */
+    public boolean shouldLoadMore(boolean loadingMore, boolean hasMore, boolean refreshing) {
+        return !loadingMore && hasMore && !refreshing && isInPrefetchRange();
+    }
+
+    //到底并且还在加载或者没有更多时显示 Footer
+    public boolean shouldShowFooter(boolean loadingMore, boolean hasMore) {
+        return isAtEnd() && (loadingMore || !hasMore);
+    }
+
+    /**
+     * 新的一页加到末尾之后，位置需要重新计算
+     */
+    public void reset() {
+        mDistanceToEnd = Integer.MAX_VALUE;
+        mItemsToEnd = UNKNOWN;
+    }
+}
@@ -1,22 +1,24 @@
 package com.tony.refreshview.indicator;
 
-import android.graphics.PointF;
-
 /**
  * 刷新的指示器　记录操作数据
  */
 public class RefreshIndicator {
     public final static int POS_START = 0;//开始位置
-    private PointF mPtLastMove = new PointF();//最近移动的距离
+    private float mLastMoveX;//最近移动的位置，用两个 float 代替 PointF，避免触摸路径上出现对象
+    private float mLastMoveY;
     private float mOffsetX;
     private float mOffsetY;
     private int mCurrentPos = 0;//当前位置
+    private float mCurrentPosExact = 0;//带小数的当前位置，mCurrentPos 是它的整数部分
+    private float mBatchPosExact = 0;//批量处理历史采样时，逐个采样移动后将要到达的位置
     private int mLastPos = 0;//上一次位置
     private int mHeaderHeight;//头的高度
     private int mPressedPos = 0;//按下的位置
 
     private float mRatioOfHeaderHeightToRefresh = 1.2f;//
     private float mResistance = 1.7f;//阻尼系数
+    private ResistanceCurve mResistanceCurve;//阻尼曲线，为空时阻尼固定
     private boolean mIsTouch = false;//是不是在触摸状态
     protected int mOffsetToRefresh = 0;//达到刷新的偏移量
     private int mOffsetToKeepHeaderWhileLoading = -1;//达到刷新的偏移量
@@ -38,6 +40,30 @@ public class RefreshIndicator {
         this.mResistance = resistance;
     }
 
+    public ResistanceCurve getResistanceCurve() {
+        return mResistanceCurve;
+    }
+
+    /**
+     * 设置阻尼曲线，阻尼随下拉距离变化；传 null 恢复固定阻尼
+     *
+     * @param curve
+     */
+    public void setResistanceCurve(ResistanceCurve curve) {
+        mResistanceCurve = curve;
+    }
+
+    /**
+     * @param pos 下拉距离
+     * @return 这个位置上的阻尼
+     */
+    public float getResistance(float pos) {
+        if (mResistanceCurve == null || mHeaderHeight <= 0) {
+            return mResistance;
+        }
+        return mResistance * mResistanceCurve.getMultiple(pos / mHeaderHeight);
+    }
+
     public void onUIRefreshComplete() {
         mRefreshCompleteY = mCurrentPos;
     }
@@ -67,14 +93,53 @@ public class RefreshIndicator {
     public void onTouchDown(float x, float y) {
         mIsTouch = true;
         mPressedPos = mCurrentPos;
-        mPtLastMove.set(x, y);
+        mLastMoveX = x;
+        mLastMoveY = y;
     }
 
     public final void onTouchMove(float x, float y) {
-        float offsetX = x - mPtLastMove.x;
-        float offsetY = (y - mPtLastMove.y);
-        setOffset(offsetX, offsetY / mResistance);
-        mPtLastMove.set(x, y);
+        float offsetX = x - mLastMoveX;
+        float offsetY = (y - mLastMoveY);
+        setOffset(offsetX, offsetY / getResistance(mCurrentPosExact));
+        mBatchPosExact = moveBySample(mCurrentPosExact, mOffsetY);
+        mLastMoveX = x;
+        mLastMoveY = y;
+    }
+
+    /**
+     * 同一个 MotionEvent 中批量的历史采样，偏移量累加到本次 move 上，
+     * 调用前需要先用第一个采样调用 {@link #onTouchMove(float, float)}。
+     * <p/>
+     * 每个采样都按逐个移动的规则在顶部截断，累加后的偏移量移动到的位置和逐个处理每个采样相同，
+     * 越过顶部再回来的一批采样也是如此。
+     */
+    public final void onTouchMoveBatched(float x, float y) {
+        float offsetX = x - mLastMoveX;
+        float offsetY = (y - mLastMoveY);
+        //按上一个采样到达的位置计算阻尼
+        mBatchPosExact = moveBySample(mBatchPosExact, offsetY / getResistance(mBatchPosExact));
+        setOffset(mOffsetX + offsetX, mBatchPosExact - mCurrentPosExact);
+        mLastMoveX = x;
+        mLastMoveY = y;
+    }
+
+    /**
+     * 和 RefreshLayout 逐个处理 move 的规则一致：向下总是移动，离开顶部后才能向上移动，并且停在顶部
+     */
+    private static float moveBySample(float pos, float offset) {
+        if (offset <= 0 && (int) pos <= POS_START) {
+            return pos;
+        }
+        return Math.max(POS_START, pos + offset);
+    }
+
+    /**
+     * 嵌套滚动中 Content 交过来的距离，同样计算阻尼
+     *
+     * @param dy 向下为正
+     */
+    public final void onNestedScroll(float dy) {
+        setOffset(0, dy / getResistance(mCurrentPosExact));
     }
 
     //记录每次move导致视图的偏移量
@@ -99,10 +164,39 @@ public class RefreshIndicator {
         return mCurrentPos;
     }
 
+    /**
+     * 精确的当前位置，包含还没有跨过整像素的移动
+     */
+    public float getCurrentPosExact() {
+        return mCurrentPosExact;
+    }
+
     /**
      * Update current position before update the UI
      */
     public final void setCurrentPos(int current) {
+        mCurrentPosExact = current;
+        updatePos(current);
+    }
+
+    /**
+     * 带小数的位置，整数位置取整数部分。不足一个像素的移动会累积下来，跨过整像素时整数位置才变化。
+     *
+     * @param current 不小于 {@link #POS_START}
+     */
+    public final void setCurrentPosExact(float current) {
+        mCurrentPosExact = current;
+        updatePos((int) current);
+    }
+
+    /**
+     * 丢掉小数部分，和整数位置对齐
+     */
+    public void snapToPixel() {
+        mCurrentPosExact = mCurrentPos;
+    }
+
+    private void updatePos(int current) {
         mLastPos = mCurrentPos;
         mCurrentPos = current;
         onUpdatePos(current, mLastPos);
@@ -127,6 +221,7 @@ public class RefreshIndicator {
 
     public void convertFrom(RefreshIndicator ptrSlider) {
         mCurrentPos = ptrSlider.mCurrentPos;
+        mCurrentPosExact = ptrSlider.mCurrentPosExact;
         mLastPos = ptrSlider.mLastPos;
         mHeaderHeight = ptrSlider.mHeaderHeight;
     }
@@ -193,9 +288,9 @@ public class RefreshIndicator {
         return oldPercent;
     }
 
-    //上一次的位置所在头的百分比
+    //当前位置所在头的百分比，按精确位置计算
     public float getCurrentPercent() {
-        final float currentPercent = mHeaderHeight == 0 ? 0 : mCurrentPos * 1f / mHeaderHeight;
+        final float currentPercent = mHeaderHeight == 0 ? 0 : mCurrentPosExact / mHeaderHeight;
         return currentPercent;
     }
 
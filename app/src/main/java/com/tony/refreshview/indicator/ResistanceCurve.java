@@ -0,0 +1,70 @@
+package com.tony.refreshview.indicator;
+
+/**
+ * 随下拉距离变化的阻尼曲线，越往下拉越难拉动。
+ * <p/>
+ * 曲线预先采样成一张倍数表，运行时按下拉距离与头部高度的比例查表并线性插值，
+ * 每个 move 事件只有一次乘法和一次查表，和固定阻尼的一次除法代价相当。
+ * 实际阻尼为 {@link RefreshIndicator#getResistance()} 乘以表中的倍数。
+ */
+public final class ResistanceCurve {
+    public static final int DEFAULT_SAMPLES = 65;
+
+    private final float[] mMultiples;
+    private final float mRange;
+    private final float mIndexScale;
+    private final int mLastIndex;
+
+    /**
+     * @param multiples 在 [0, range] 上均匀分布的阻尼倍数，至少两个
+     * @param range     曲线覆盖的下拉距离，单位为头部高度，超出部分使用最后一个倍数
+     */
+    public ResistanceCurve(float[] multiples, float range) {
+        if (multiples == null || multiples.length < 2) {
+            throw new IllegalArgumentException("ResistanceCurve needs at least two samples");
+        }
+        if (range <= 0) {
+            throw new IllegalArgumentException("ResistanceCurve range must be positive");
+        }
+        mMultiples = multiples.clone();
+        mRange = range;
+        mLastIndex = multiples.length - 1;
+        mIndexScale = mLastIndex / range;
+    }
+
+    /**
+     * 橡皮筋效果：倍数从 1 开始按平方增长，在 range 处达到 maxMultiple
+     *
+     * @param maxMultiple 最大倍数
+     * @param range       达到最大倍数时的下拉距离，单位为头部高度
+     */
+    public static ResistanceCurve progressive(float maxMultiple, float range) {
+        float[] multiples = new float[DEFAULT_SAMPLES];
+        for (int i = 0; i < DEFAULT_SAMPLES; i++) {
+            float t = i / (float) (DEFAULT_SAMPLES - 1);
+            multiples[i] = 1 + (maxMultiple - 1) * t * t;
+        }
+        return new ResistanceCurve(multiples, range);
+    }
+
+    public float getRange() {
+        return mRange;
+    }
+
+    /**
+     * @param ratio 下拉距离与头部高度的比例
+     * @return 阻尼倍数
+     */
+    public float getMultiple(float ratio) {
+        if (ratio <= 0) {
+            return mMultiples[0];
+        }
+        final float index = ratio * mIndexScale;
+        final int i = (int) index;
+        if (i >= mLastIndex) {
+            return mMultiples[mLastIndex];
+        }
+        final float from = mMultiples[i];
+        return from + (mMultiples[i + 1] - from) * (index - i);
+    }
+}
@@ -0,0 +1,40 @@
+package com.tony.refreshview.core;
+
+import android.view.View;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CachedRefreshTest {
+
+    private static class CountingRefresh extends CachedRefresh {
+        boolean mResult = true;
+        int mChecks;
+
+        @Override
+        protected boolean checkCanRefresh(RefreshLayout refreshLayout, View header, View content) {
+            mChecks++;
+            return mResult;
+        }
+
+        @Override
+        public void onRefreshBegin(RefreshLayout refreshLayout) {
+        }
+    }
+
+    @Test
+    public void canRefresh_isCachedUntilInvalidated() throws Exception {
+        CountingRefresh refresh = new CountingRefresh();
+
+        assertTrue(refresh.canRefresh(null, null, null));
+        refresh.mResult = false;
+        assertTrue(refresh.canRefresh(null, null, null));
+        assertEquals(1, refresh.mChecks);
+
+        refresh.invalidate();
+        assertFalse(refresh.canRefresh(null, null, null));
+        assertFalse(refresh.canRefresh(null, null, null));
+        assertEquals(2, refresh.mChecks);
+    }
+}
@@ -0,0 +1,131 @@
+package com.tony.refreshview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 回放录制的帧时间，统计回弹动画中的掉帧数。
+ */
+public class FrameScrollerTest {
+    private static final long VSYNC = 16666667L;
+
+    /**
+     * 录制自一次 500ms 的头部回弹：第 5、6 帧和第 17 帧丢失。
+     */
+    private static final long[] RECORDED_FRAMES = {
+            0, VSYNC, 2 * VSYNC, 3 * VSYNC, 4 * VSYNC, 7 * VSYNC, 8 * VSYNC, 9 * VSYNC, 10 * VSYNC,
+            11 * VSYNC, 12 * VSYNC, 13 * VSYNC, 14 * VSYNC, 15 * VSYNC, 16 * VSYNC, 18 * VSYNC,
+            19 * VSYNC, 20 * VSYNC, 21 * VSYNC, 22 * VSYNC, 23 * VSYNC, 24 * VSYNC, 25 * VSYNC,
+            26 * VSYNC, 27 * VSYNC, 28 * VSYNC, 29 * VSYNC, 30 * VSYNC
+    };
+
+    @Test
+    public void replay_reportsDroppedFrames() throws Exception {
+        ReplayResult result = replay(new FrameScroller(), 180, 0, 500, RECORDED_FRAMES);
+        assertEquals(3, result.droppedFrames);
+        assertEquals(0, result.finalPos);
+        assertEquals(RECORDED_FRAMES.length, result.movePosCalls);
+    }
+
+    @Test
+    public void droppedFrame_doesNotDelayAnimation() throws Exception {
+        FrameScroller smooth = new FrameScroller();
+        smooth.start(180, -180, 500, 0);
+        FrameScroller janky = new FrameScroller();
+        janky.start(180, -180, 500, 0);
+
+        //smooth 每个 vsync 都有一帧，janky 回放录制的帧（丢了第 5、6 帧），都停在动画中途
+        final long end = 10 * VSYNC;
+        for (long frame = 0; frame <= end; frame += VSYNC) {
+            smooth.computePosition(frame);
+        }
+        for (long frame : RECORDED_FRAMES) {
+            if (frame > end) {
+                break;
+            }
+            janky.computePosition(frame);
+            if (frame == 7 * VSYNC) {
+                //掉帧之后的第一帧直接跳到 smooth 在同一时刻的位置
+                FrameScroller reference = new FrameScroller();
+                reference.start(180, -180, 500, 0);
+                reference.computePosition(frame);
+                assertEquals(reference.getCurrentPos(), janky.getCurrentPos());
+            }
+        }
+
+        assertFalse(smooth.isFinished());
+        assertFalse(janky.isFinished());
+        assertTrue(smooth.getCurrentPos() > 0 && smooth.getCurrentPos() < 180);
+        assertEquals(smooth.getCurrentPos(), janky.getCurrentPos());
+    }
+
+    @Test
+    public void sameFrame_samePosition() throws Exception {
+        FrameScroller scroller = new FrameScroller();
+        scroller.start(0, 200, 200, 0);
+        scroller.computePosition(5 * VSYNC);
+        int pos = scroller.getCurrentPos();
+        scroller.computePosition(5 * VSYNC);
+        assertEquals(pos, scroller.getCurrentPos());
+    }
+
+    @Test
+    public void frameBeforeStart_staysAtStart() throws Exception {
+        FrameScroller scroller = new FrameScroller();
+        scroller.start(120, -120, 200, VSYNC);
+        assertTrue(scroller.computePosition(0));
+        assertEquals(120, scroller.getCurrentPos());
+    }
+
+    @Test
+    public void flingDuration_matchesReleaseVelocity() throws Exception {
+        //向上回弹 150px，起始速度 1500px/s
+        assertEquals(200, FrameScroller.computeFlingDuration(-150, -1500, 50, 100, 500));
+        //按阻尼换算后的头部速度更慢，回弹更长
+        assertEquals(340, FrameScroller.computeFlingDuration(-150, -1500 / 1.7f, 50, 100, 500));
+    }
+
+    @Test
+    public void flingDuration_clampedToRange() throws Exception {
+        assertEquals(100, FrameScroller.computeFlingDuration(20, 8000, 50, 100, 500));
+        assertEquals(500, FrameScroller.computeFlingDuration(300, 200, 50, 100, 500));
+    }
+
+    @Test
+    public void slowOrOppositeVelocity_usesDefaultCurve() throws Exception {
+        assertEquals(FrameScroller.NO_FLING, FrameScroller.computeFlingDuration(-150, -50, 50, 100, 500));
+        assertEquals(FrameScroller.NO_FLING, FrameScroller.computeFlingDuration(-150, 3000, 50, 100, 500));
+        assertEquals(FrameScroller.NO_FLING, FrameScroller.computeFlingDuration(0, -3000, 50, 100, 500));
+    }
+
+    private static ReplayResult replay(FrameScroller scroller, int start, int to, int duration, long[] frames) {
+        ReplayResult result = new ReplayResult();
+        scroller.start(start, to - start, duration, frames[0]);
+        int pos = start;
+        long lastFrame = -1;
+        for (long frame : frames) {
+            if (lastFrame >= 0) {
+                result.droppedFrames += Math.max(0, Math.round((frame - lastFrame) * 1f / VSYNC) - 1);
+            }
+            lastFrame = frame;
+            if (!scroller.computePosition(frame)) {
+                break;
+            }
+            int delta = scroller.getCurrentPos() - pos;
+            pos += delta;
+            result.movePosCalls++;
+            if (scroller.isFinished()) {
+                break;
+            }
+        }
+        result.finalPos = pos;
+        return result;
+    }
+
+    private static class ReplayResult {
+        int droppedFrames;
+        int movePosCalls;
+        int finalPos;
+    }
+}
@@ -0,0 +1,140 @@
+package com.tony.refreshview.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class LastUpdateTimeStoreTest {
+
+    @Test
+    public void put_neverWritesOnCallingThread() throws Exception {
+        RecordingStorage storage = new RecordingStorage();
+        QueueExecutor executor = new QueueExecutor();
+        LastUpdateTimeStore store = new LastUpdateTimeStore(storage, executor);
+
+        store.put("feed", 1000L);
+        assertEquals(1000L, store.get("feed"));
+        assertTrue(storage.mSaveThreads.isEmpty());
+
+        Thread worker = executor.drainOnNewThread();
+        assertEquals(1, storage.mSaveThreads.size());
+        assertSame(worker, storage.mSaveThreads.get(0));
+        assertEquals(Long.valueOf(1000L), storage.mSaved.get("feed"));
+    }
+
+    @Test
+    public void writes_areCoalesced() throws Exception {
+        RecordingStorage storage = new RecordingStorage();
+        QueueExecutor executor = new QueueExecutor();
+        LastUpdateTimeStore store = new LastUpdateTimeStore(storage, executor);
+
+        store.put("feed", 1000L);
+        store.put("feed", 2000L);
+        store.put("profile", 3000L);
+        executor.drainOnNewThread();
+
+        assertEquals(1, storage.mSaveThreads.size());
+        assertEquals(Long.valueOf(2000L), storage.mSaved.get("feed"));
+        assertEquals(Long.valueOf(3000L), storage.mSaved.get("profile"));
+    }
+
+    @Test
+    public void preload_doesNotOverrideNewerValue() throws Exception {
+        RecordingStorage storage = new RecordingStorage();
+        storage.mSaved.put("feed", 1000L);
+        storage.mSaved.put("profile", 500L);
+        QueueExecutor executor = new QueueExecutor();
+        LastUpdateTimeStore store = new LastUpdateTimeStore(storage, executor);
+
+        assertEquals(-1, store.get("profile"));
+        store.put("feed", 2000L);
+        executor.drainOnNewThread();
+
+        assertEquals(2000L, store.get("feed"));
+        assertEquals(500L, store.get("profile"));
+    }
+
+    @Test
+    public void checkFresh_countsHitsAndMissesWithinTtl() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        LastUpdateTimeStore store = new LastUpdateTimeStore(new RecordingStorage(), executor);
+        executor.drainOnNewThread();
+
+        assertFalse(store.checkFresh("feed", 1000L));
+        assertEquals(0, store.getFreshMissCount("feed"));
+
+        store.setTtl("feed", 500L);
+        assertFalse(store.checkFresh("feed", 1000L));
+        store.put("feed", 1000L);
+        assertTrue(store.checkFresh("feed", 1499L));
+        assertFalse(store.checkFresh("feed", 1500L));
+        assertFalse(store.checkFresh("feed", 900L));
+
+        assertEquals(1, store.getFreshHitCount("feed"));
+        assertEquals(3, store.getFreshMissCount("feed"));
+    }
+
+    @Test
+    public void checkFresh_beforePreload_isUnknownAndNotCounted() throws Exception {
+        RecordingStorage storage = new RecordingStorage();
+        storage.mSaved.put("feed", 1000L);
+        QueueExecutor executor = new QueueExecutor();
+        LastUpdateTimeStore store = new LastUpdateTimeStore(storage, executor);
+        store.setTtl("feed", 500L);
+
+        assertFalse(store.isLoaded());
+        assertFalse(store.checkFresh("feed", 1200L));
+        assertEquals(0, store.getFreshMissCount("feed"));
+
+        executor.drainOnNewThread();
+        assertTrue(store.isLoaded());
+        assertTrue(store.checkFresh("feed", 1200L));
+        assertEquals(1, store.getFreshHitCount("feed"));
+        assertEquals(0, store.getFreshMissCount("feed"));
+    }
+
+    private static class RecordingStorage implements LastUpdateTimeStore.Storage {
+        final Map<String, Long> mSaved = new HashMap<String, Long>();
+        final List<Thread> mSaveThreads = new ArrayList<Thread>();
+
+        @Override
+        public Map<String, Long> load() {
+            return new HashMap<String, Long>(mSaved);
+        }
+
+        @Override
+        public void save(Map<String, Long> values) {
+            mSaveThreads.add(Thread.currentThread());
+            mSaved.putAll(values);
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final List<Runnable> mTasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        Thread drainOnNewThread() throws InterruptedException {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!mTasks.isEmpty()) {
+                        mTasks.remove(0).run();
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.tony.refreshview.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+
+import static org.junit.Assert.*;
+
+public class RefreshCacheTest {
+    private static final DiskRefreshCache.Codec<String> STRING_CODEC = new DiskRefreshCache.Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            try {
+                return value.getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            try {
+                return new String(bytes, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void memory_evictsLeastRecentlyUsed() {
+        MemoryRefreshCache<String> cache = new MemoryRefreshCache<String>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void disk_evictsBySizeAndSurvivesReopen() throws Exception {
+        File dir = mFolder.newFolder("cache");
+        DiskRefreshCache<String> cache = new DiskRefreshCache<String>(dir, 10, STRING_CODEC);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        assertEquals("aaaa", cache.get("a"));
+        cache.put("c", "cccc");
+
+        assertEquals(8, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(2, dir.listFiles().length);
+
+        DiskRefreshCache<String> reopened = new DiskRefreshCache<String>(dir, 10, STRING_CODEC);
+        assertEquals(8, reopened.size());
+        assertEquals("aaaa", reopened.get("a"));
+        assertEquals("cccc", reopened.get("c"));
+
+        reopened.put("big", "this value is larger than the cache");
+        assertNull(reopened.get("big"));
+        assertEquals(8, reopened.size());
+    }
+}
@@ -0,0 +1,320 @@
+package com.tony.refreshview.core;
+
+import com.tony.refreshview.indicator.RefreshIndicator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class RefreshEngineTest {
+    private static final int HEADER_HEIGHT = 100;
+
+    private RefreshIndicator mIndicator;
+    private FakeHost mHost;
+    private RefreshEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mIndicator = new RefreshIndicator();
+        mIndicator.setHeaderHeight(HEADER_HEIGHT);
+        mHost = new FakeHost();
+        mEngine = new RefreshEngine(mHost, mIndicator);
+    }
+
+    @Test
+    public void releaseOverRefreshLine_loadsAndResets() throws Exception {
+        mIndicator.onTouchDown(0, 0);
+        moveTo(50, true);
+        assertEquals(RefreshEngine.STATUS_PREPARE, mEngine.getStatus());
+        moveTo(130, true);
+        mIndicator.onTouchUp();
+        mEngine.onRelease(false, 0);
+        assertEquals(RefreshEngine.STATUS_LOADING, mEngine.getStatus());
+        assertEquals(HEADER_HEIGHT, mHost.mScrollTo);
+
+        runScroll();
+        mHost.mTime += 1000;
+        mEngine.refreshComplete();
+        assertEquals(RefreshIndicator.POS_START, mHost.mScrollTo);
+        runScroll();
+
+        assertEquals(RefreshEngine.STATUS_INIT, mEngine.getStatus());
+        assertEquals("[prepare, begin, complete, reset]", mHost.mEvents.toString());
+    }
+
+    @Test
+    public void releaseBeforeRefreshLine_scrollsBackWithoutLoading() throws Exception {
+        mIndicator.onTouchDown(0, 0);
+        moveTo(80, true);
+        mIndicator.onTouchUp();
+        mEngine.onRelease(false, 0);
+        runScroll();
+
+        assertEquals(RefreshEngine.STATUS_INIT, mEngine.getStatus());
+        assertEquals("[prepare, reset]", mHost.mEvents.toString());
+    }
+
+    @Test
+    public void refreshComplete_waitsForLoadingMinTime() throws Exception {
+        mEngine.setLoadingMinTime(500);
+        mEngine.autoRefresh(true, 200);
+        runScroll();
+        mHost.mTime += 100;
+        mEngine.refreshComplete();
+
+        assertEquals(400, mHost.mCompleteDelay);
+        assertEquals(RefreshEngine.STATUS_LOADING, mEngine.getStatus());
+        mHost.mTime += 400;
+        mEngine.performRefreshComplete();
+        assertEquals(RefreshEngine.STATUS_COMPLETE, mEngine.getStatus());
+    }
+
+    @Test
+    public void flingOverScroll_doesNotNotifyPrepare() throws Exception {
+        mEngine.overScroll(40, 3000);
+        assertEquals(40, mHost.mScrollTo);
+        runScroll();
+        assertEquals(RefreshIndicator.POS_START, mHost.mScrollTo);
+        runScroll();
+
+        assertEquals(RefreshEngine.STATUS_INIT, mEngine.getStatus());
+        assertTrue(mHost.mEvents.isEmpty());
+    }
+
+    @Test
+    public void touchDuringFlingOverScroll_startsPull() throws Exception {
+        mEngine.overScroll(40, 3000);
+        moveTo(20, false);
+        mIndicator.onTouchDown(0, 0);
+        mHost.mScrollTo = -1;
+        mEngine.onScrollAbort();
+        moveTo(30, true);
+
+        assertEquals(RefreshEngine.STATUS_PREPARE, mEngine.getStatus());
+        assertEquals("[prepare]", mHost.mEvents.toString());
+    }
+
+    @Test
+    public void autoRefresh_suppressedWithinTtlAndRecordsOnComplete() throws Exception {
+        LastUpdateTimeStore store = new LastUpdateTimeStore(new LastUpdateTimeStore.Storage() {
+            @Override
+            public Map<String, Long> load() {
+                return new HashMap<String, Long>();
+            }
+
+            @Override
+            public void save(Map<String, Long> values) {
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        store.setTtl("feed", 60000);
+        mEngine.setFreshness(store, "feed");
+
+        //没有记录，照常刷新，完成时由引擎记录最后更新时间
+        assertTrue(mEngine.autoRefresh(true, 200));
+        runScroll();
+        mHost.mTime += 1000;
+        mEngine.refreshComplete();
+        runScroll();
+        assertEquals(mHost.mTime, store.get("feed"));
+
+        mHost.mEvents.clear();
+        mHost.mTime += 1000;
+        assertFalse(mEngine.autoRefresh(true, 200));
+        assertEquals(RefreshEngine.STATUS_INIT, mEngine.getStatus());
+        assertTrue(mHost.mEvents.isEmpty());
+        assertEquals(1, store.getFreshHitCount("feed"));
+        assertEquals(1, store.getFreshMissCount("feed"));
+
+        //过期后再次加载
+        mHost.mTime += 60000;
+        assertTrue(mEngine.autoRefresh(true, 200));
+        assertEquals(RefreshEngine.STATUS_LOADING, mEngine.getStatus());
+    }
+
+    @Test
+    public void autoRefresh_failedOrCancelledLoadDoesNotRecord() throws Exception {
+        final Map<String, Long> records = new HashMap<String, Long>();
+        mEngine.setFreshness(new Freshness() {
+            @Override
+            public boolean isFresh(String key, long now) {
+                return records.containsKey(key);
+            }
+
+            @Override
+            public void record(String key, long now) {
+                records.put(key, now);
+            }
+        }, "feed");
+
+        //失败或取消的加载结束刷新，但下一次 autoRefresh 照常加载
+        assertTrue(mEngine.autoRefresh(true, 200));
+        runScroll();
+        mHost.mTime += 1000;
+        mEngine.refreshComplete(false);
+        runScroll();
+        assertEquals(RefreshEngine.STATUS_INIT, mEngine.getStatus());
+        assertTrue(records.isEmpty());
+
+        assertTrue(mEngine.autoRefresh(true, 200));
+        runScroll();
+        mHost.mTime += 1000;
+        mEngine.refreshComplete();
+        runScroll();
+        assertEquals(Long.valueOf(mHost.mTime), records.get("feed"));
+        assertFalse(mEngine.autoRefresh(true, 200));
+    }
+
+    /**
+     * 随机的手势、滚动和加载完成序列，回调顺序必须始终合法
+     */
+    @Test
+    public void randomGestures_keepCallbackOrder() throws Exception {
+        Random random = new Random(20160625);
+        for (int i = 0; i < 200000; i++) {
+            switch (random.nextInt(7)) {
+                case 0:
+                    if (!mIndicator.isTouch()) {
+                        mIndicator.onTouchDown(0, 0);
+                        if (mHost.mScrollTo >= 0) {
+                            mHost.mScrollTo = -1;
+                            mEngine.onScrollAbort();
+                        }
+                    }
+                    break;
+                case 1:
+                case 2:
+                    if (mIndicator.isTouch()) {
+                        moveTo(random.nextInt(3 * HEADER_HEIGHT), true);
+                    }
+                    break;
+                case 3:
+                    if (mIndicator.isTouch()) {
+                        mIndicator.onTouchUp();
+                        if (mIndicator.hasLeftStartPosition()) {
+                            mEngine.onRelease(false, 0);
+                        }
+                    }
+                    break;
+                case 4:
+                    runScroll();
+                    break;
+                case 5:
+                    mHost.mTime += random.nextInt(1000);
+                    if (mEngine.isRefreshing()) {
+                        mEngine.refreshComplete();
+                    }
+                    if (mHost.mCompleteDelay > 0) {
+                        mHost.mCompleteDelay = 0;
+                        mEngine.performRefreshComplete();
+                    }
+                    break;
+                default:
+                    if (!mIndicator.isTouch()) {
+                        mEngine.autoRefresh(random.nextBoolean(), 200);
+                    }
+                    break;
+            }
+        }
+        assertTrue(mHost.mEvents.size() > 1000);
+    }
+
+    private void moveTo(int pos, boolean isTouch) {
+        if (pos == mIndicator.getCurrentPosY()) {
+            return;
+        }
+        mIndicator.setCurrentPos(pos);
+        mEngine.onPositionChange(isTouch);
+    }
+
+    //滚动直接跳到终点
+    private void runScroll() {
+        if (mHost.mScrollTo < 0) {
+            return;
+        }
+        int to = mHost.mScrollTo;
+        mHost.mScrollTo = -1;
+        moveTo(to, false);
+        mEngine.onScrollFinish();
+    }
+
+    private class FakeHost implements RefreshEngine.Host {
+        final List<String> mEvents = new ArrayList<String>();
+        int mScrollTo = -1;
+        long mTime = 1000;
+        long mCompleteDelay;
+        private String mLast = "reset";
+
+        private void event(String event, String... allowedAfter) {
+            boolean allowed = false;
+            for (String after : allowedAfter) {
+                allowed |= after.equals(mLast);
+            }
+            assertTrue(event + " after " + mLast, allowed);
+            mLast = event;
+            //只保留开头的部分，足够检查顺序
+            if (mEvents.size() < 100000) {
+                mEvents.add(event);
+            }
+        }
+
+        @Override
+        public void onUIReset() {
+            assertTrue(mIndicator.isInStartPosition());
+            event("reset", "prepare", "complete");
+        }
+
+        @Override
+        public void onUIRefreshPrepare() {
+            event("prepare", "reset");
+        }
+
+        @Override
+        public void onUIRefreshBegin() {
+            event("begin", "prepare");
+        }
+
+        @Override
+        public void onUIRefreshComplete() {
+            //完成后没回到顶部又松手时会再通知一次，和原来的行为一致
+            event("complete", "begin", "complete");
+        }
+
+        @Override
+        public boolean takeOverRefreshComplete() {
+            return false;
+        }
+
+        @Override
+        public void scrollTo(int to, int duration, float velocityY) {
+            mScrollTo = to;
+        }
+
+        @Override
+        public boolean isScrolling() {
+            return mScrollTo >= 0;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mTime;
+        }
+
+        @Override
+        public void postRefreshComplete(long delayMillis) {
+            mCompleteDelay = delayMillis;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.tony.refreshview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RefreshMetricsTest {
+
+    @Test
+    public void drain_returnsRecordsInOrder() throws Exception {
+        RefreshMetrics metrics = new RefreshMetrics(4);
+        final Object handler = new Object();
+        metrics.record(RefreshMetrics.TYPE_MOVE, 10);
+        metrics.record(RefreshMetrics.TYPE_HANDLER, 20, handler, UIRefreshSubscriber.EVENT_BEGIN);
+
+        final StringBuilder out = new StringBuilder();
+        int count = metrics.drain(new RefreshMetrics.Reader() {
+            @Override
+            public void onMetric(int type, long value, long timeNanos, Object source, int extra) {
+                out.append(type).append(':').append(value).append(':').append(source == handler).append(':').append(extra).append(' ');
+            }
+        });
+
+        assertEquals(2, count);
+        assertEquals("1:10:false:0 4:20:true:4 ", out.toString());
+        assertEquals(0, metrics.size());
+    }
+
+    @Test
+    public void record_dropsWhenFull() throws Exception {
+        RefreshMetrics metrics = new RefreshMetrics(3);
+        assertEquals(4, metrics.getCapacity());
+        for (int i = 0; i < 6; i++) {
+            metrics.record(RefreshMetrics.TYPE_MOVE, i);
+        }
+        assertEquals(4, metrics.size());
+        assertEquals(2, metrics.getOverflowCount());
+
+        final long[] last = new long[1];
+        metrics.drain(new RefreshMetrics.Reader() {
+            @Override
+            public void onMetric(int type, long value, long timeNanos, Object source, int extra) {
+                last[0] = value;
+            }
+        });
+        assertEquals(3, last[0]);
+        assertTrue(metrics.record(RefreshMetrics.TYPE_MOVE, 6, null, 0));
+    }
+
+    @Test
+    public void drain_fromAnotherThread_seesEveryRecordOnce() throws Exception {
+        final RefreshMetrics metrics = new RefreshMetrics(64);
+        final int total = 20000;
+        final long[] state = new long[2];//下一个期望的值，错误数
+        final RefreshMetrics.Reader reader = new RefreshMetrics.Reader() {
+            @Override
+            public void onMetric(int type, long value, long timeNanos, Object source, int extra) {
+                if (value != state[0] || extra != (int) value) {
+                    state[1]++;
+                }
+                state[0] = value + 1;
+            }
+        };
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (state[0] < total) {
+                    metrics.drain(reader);
+                }
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < total; ) {
+            if (metrics.record(RefreshMetrics.TYPE_SCROLL_FRAME, i, null, i)) {
+                i++;
+            }
+        }
+        consumer.join(10000);
+
+        assertFalse(consumer.isAlive());
+        assertEquals(total, state[0]);
+        assertEquals(0, state[1]);
+    }
+}
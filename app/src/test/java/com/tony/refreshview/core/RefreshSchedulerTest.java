@@ -0,0 +1,150 @@
+package com.tony.refreshview.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RefreshSchedulerTest {
+
+    private static class FakeClient implements RefreshScheduler.Client {
+        final String mName;
+        final String mKey;
+        final List<String> mLog;
+        boolean mVisible = true;
+
+        FakeClient(String name, String key, List<String> log) {
+            mName = name;
+            mKey = key;
+            mLog = log;
+        }
+
+        @Override
+        public String getRefreshKey() {
+            return mKey;
+        }
+
+        @Override
+        public boolean isVisibleToUser() {
+            return mVisible;
+        }
+
+        @Override
+        public void onRefreshStart() {
+            mLog.add("start " + mName);
+        }
+
+        @Override
+        public void onMergedRefreshComplete(boolean succeeded) {
+            mLog.add((succeeded ? "merged " : "merged failed ") + mName);
+        }
+    }
+
+    @Test
+    public void capsRunningAndStartsNextOnFinish() {
+        List<String> log = new ArrayList<String>();
+        RefreshScheduler scheduler = new RefreshScheduler(1);
+        FakeClient a = new FakeClient("a", null, log);
+        FakeClient b = new FakeClient("b", null, log);
+
+        scheduler.submit(a);
+        scheduler.submit(b);
+        assertEquals(1, scheduler.getRunningCount());
+        assertEquals(1, scheduler.getPendingCount());
+
+        scheduler.finish(a, true);
+        assertEquals(2, log.size());
+        assertEquals("start a", log.get(0));
+        assertEquals("start b", log.get(1));
+    }
+
+    @Test
+    public void sameKeyMergesIntoOneLoad() {
+        List<String> log = new ArrayList<String>();
+        RefreshScheduler scheduler = new RefreshScheduler(2);
+        FakeClient a = new FakeClient("a", "feed", log);
+        FakeClient b = new FakeClient("b", "feed", log);
+
+        scheduler.submit(a);
+        scheduler.submit(b);
+        assertEquals(1, scheduler.getRunningCount());
+
+        scheduler.finish(a, true);
+        assertEquals(2, log.size());
+        assertEquals("start a", log.get(0));
+        assertEquals("merged b", log.get(1));
+        assertEquals(0, scheduler.getRunningCount());
+    }
+
+    @Test
+    public void failedLoadIsPassedToFollowers() {
+        List<String> log = new ArrayList<String>();
+        RefreshScheduler scheduler = new RefreshScheduler(2);
+        FakeClient a = new FakeClient("a", "feed", log);
+        FakeClient b = new FakeClient("b", "feed", log);
+
+        scheduler.submit(a);
+        scheduler.submit(b);
+        scheduler.finish(a, false);
+        assertEquals("merged failed b", log.get(1));
+    }
+
+    @Test
+    public void invisibleWaitsAndVisibleGoesFirst() {
+        List<String> log = new ArrayList<String>();
+        RefreshScheduler scheduler = new RefreshScheduler(1);
+        FakeClient hidden = new FakeClient("hidden", null, log);
+        hidden.mVisible = false;
+        FakeClient shown = new FakeClient("shown", null, log);
+
+        scheduler.submit(hidden);
+        assertEquals(0, scheduler.getRunningCount());
+        scheduler.submit(shown);
+        assertEquals("start shown", log.get(0));
+
+        scheduler.finish(shown, true);
+        assertEquals(1, log.size());
+        hidden.mVisible = true;
+        scheduler.onVisibilityChanged();
+        assertEquals("start hidden", log.get(1));
+    }
+
+    @Test
+    public void removedOwnerHandsLoadToFollower() {
+        List<String> log = new ArrayList<String>();
+        RefreshScheduler scheduler = new RefreshScheduler(1);
+        FakeClient a = new FakeClient("a", "feed", log);
+        FakeClient b = new FakeClient("b", "feed", log);
+
+        scheduler.submit(a);
+        scheduler.submit(b);
+        scheduler.remove(a);
+
+        assertEquals("start b", log.get(1));
+        assertEquals(1, scheduler.getRunningCount());
+    }
+
+    @Test
+    public void removedRunningOwnerFreesItsSlot() {
+        List<String> log = new ArrayList<String>();
+        RefreshScheduler scheduler = new RefreshScheduler(1);
+        FakeClient a = new FakeClient("a", null, log);
+        FakeClient b = new FakeClient("b", null, log);
+
+        scheduler.submit(a);
+        scheduler.submit(b);
+        //a 离开窗口，之后不再结束刷新
+        scheduler.remove(a);
+        assertEquals("start b", log.get(1));
+        assertEquals(1, scheduler.getRunningCount());
+        assertEquals(0, scheduler.getPendingCount());
+
+        //迟到的结束不影响正在加载的 b
+        scheduler.finish(a, true);
+        assertEquals(1, scheduler.getRunningCount());
+        scheduler.finish(b, true);
+        assertEquals(0, scheduler.getRunningCount());
+    }
+}
@@ -0,0 +1,258 @@
+package com.tony.refreshview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RefreshTaskRunnerTest {
+
+    private FakeHost mHost;
+    private FakeRefresh mRefresh;
+    private RefreshTaskRunner mRunner;
+
+    @Before
+    public void setUp() {
+        mHost = new FakeHost();
+        mRefresh = new FakeRefresh();
+        mRunner = new RefreshTaskRunner(mHost);
+        mHost.mRunner = mRunner;
+    }
+
+    @Test
+    public void completeOnOtherThread_endsRefreshOnUiThread() throws Exception {
+        mRunner.start(mRefresh, null);
+        final RefreshTask task = mRunner.getTask();
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                task.complete();
+            }
+        });
+        loader.start();
+        loader.join();
+
+        //只 post，不在加载线程结束刷新
+        assertEquals(1, mHost.mPosted.get());
+        assertEquals(0, mHost.mCompleted);
+        mHost.runPosted();
+        assertEquals(1, mHost.mCompleted);
+        assertEquals(1, mHost.mSucceeded);
+        assertNull(mRunner.getTask());
+    }
+
+    @Test
+    public void cancelByApp_endsRefresh() throws Exception {
+        mRunner.start(mRefresh, null);
+        mRunner.getTask().cancel();
+        mHost.runPosted();
+
+        assertEquals(1, mHost.mCompleted);
+        //取消的加载不算成功
+        assertEquals(0, mHost.mSucceeded);
+        assertNull(mRunner.getTask());
+    }
+
+    @Test
+    public void fail_endsRefreshWithoutSuccess() throws Exception {
+        mRunner.start(mRefresh, null);
+        mRunner.getTask().fail();
+        mHost.runPosted();
+
+        assertEquals(1, mHost.mCompleted);
+        assertEquals(0, mHost.mSucceeded);
+        assertNull(mRunner.getTask());
+    }
+
+    @Test
+    public void startWhileRunning_joinsInFlightTask() throws Exception {
+        mRunner.start(mRefresh, null);
+        RefreshTask first = mRunner.getTask();
+        mRunner.start(mRefresh, null);
+
+        assertEquals(1, mRefresh.mRefreshTasks);
+        assertSame(first, mRunner.getTask());
+        first.complete();
+        mHost.runPosted();
+        assertEquals(1, mHost.mCompleted);
+
+        mRunner.start(mRefresh, null);
+        assertEquals(2, mRefresh.mRefreshTasks);
+    }
+
+    @Test
+    public void detach_cancelsAndReattachEndsRefresh() throws Exception {
+        mRunner.start(mRefresh, null);
+        RefreshTask task = mRunner.getTask();
+
+        mRunner.onDetached();
+        assertTrue(task.isCancelled());
+        //离开窗口时不结束刷新，取消产生的回调也被移除
+        mHost.runPosted();
+        assertEquals(0, mHost.mCompleted);
+
+        mRunner.onAttached();
+        assertEquals(1, mHost.mCompleted);
+        assertEquals(0, mHost.mSucceeded);
+        mRunner.onAttached();
+        assertEquals(1, mHost.mCompleted);
+    }
+
+    @Test
+    public void nullTask_fallsBackToManualComplete() throws Exception {
+        mRefresh.mReturnNull = true;
+        assertFalse(mRunner.start(mRefresh, null));
+        assertNull(mRunner.getTask());
+
+        //下一次刷新重新调用 onRefreshTask
+        mRefresh.mReturnNull = false;
+        assertTrue(mRunner.start(mRefresh, null));
+        assertEquals(2, mRefresh.mRefreshTasks);
+    }
+
+    @Test
+    public void taskDoneInsideOnRefreshTask_stillEndsRefresh() throws Exception {
+        RefreshTask done = new RefreshTask();
+        done.complete();
+        mRefresh.mNext = done;
+
+        mRunner.start(mRefresh, null);
+        mHost.runPosted();
+        assertEquals(1, mHost.mCompleted);
+    }
+
+    @Test
+    public void speculative_startsAtRatioAndCancelsOnShortRelease() throws Exception {
+        mRunner.setSpeculativeRatio(0.5f);
+        mRunner.onPull(mRefresh, null, 40, 100);
+        assertNull(mRunner.getTask());
+        mRunner.onPull(mRefresh, null, 50, 100);
+        RefreshTask task = mRunner.getTask();
+        assertTrue(mRunner.isSpeculative());
+        mRunner.onPull(mRefresh, null, 60, 100);
+        assertEquals(1, mRefresh.mSpeculativeTasks);
+
+        //没拉到刷新距离就回到顶部
+        mRunner.cancelSpeculative();
+        assertTrue(task.isCancelled());
+        assertNull(mRunner.getTask());
+        mHost.runPosted();
+        assertEquals(0, mHost.mCompleted);
+    }
+
+    @Test
+    public void speculative_adoptedOnRelease() throws Exception {
+        mRunner.setSpeculativeRatio(0.5f);
+        mRunner.onPull(mRefresh, null, 80, 100);
+        RefreshTask task = mRunner.getTask();
+
+        mRunner.start(mRefresh, null);
+        assertFalse(mRunner.isSpeculative());
+        assertEquals(0, mRefresh.mRefreshTasks);
+        assertSame(task, mRunner.getTask());
+        task.complete();
+        mHost.runPosted();
+        assertEquals(1, mHost.mCompleted);
+    }
+
+    @Test
+    public void speculative_doneBeforeReleaseEndsOnRelease() throws Exception {
+        mRunner.setSpeculativeRatio(0.5f);
+        mRunner.onPull(mRefresh, null, 80, 100);
+        mRunner.getTask().complete();
+        mHost.runPosted();
+        //还在下拉，不结束刷新
+        assertEquals(0, mHost.mCompleted);
+        assertTrue(mRunner.isSpeculative());
+
+        mRunner.start(mRefresh, null);
+        mHost.runPosted();
+        assertEquals(0, mRefresh.mRefreshTasks);
+        assertEquals(1, mHost.mCompleted);
+    }
+
+    @Test
+    public void speculative_cancelledDuringPullReloadsOnRelease() throws Exception {
+        mRunner.setSpeculativeRatio(0.5f);
+        mRunner.onPull(mRefresh, null, 80, 100);
+        mRunner.getTask().cancel();
+        mHost.runPosted();
+        assertFalse(mRunner.isSpeculative());
+
+        mRunner.start(mRefresh, null);
+        assertEquals(1, mRefresh.mRefreshTasks);
+        assertEquals(0, mHost.mCompleted);
+    }
+
+    @Test
+    public void speculative_offByDefault() throws Exception {
+        mRunner.onPull(mRefresh, null, 100, 100);
+        assertNull(mRunner.getTask());
+        assertEquals(0, mRefresh.mSpeculativeTasks);
+    }
+
+    static class FakeHost implements RefreshTaskRunner.Host {
+        final AtomicInteger mPosted = new AtomicInteger();
+        boolean mRefreshing = true;
+        int mCompleted;
+        int mSucceeded;
+        RefreshTaskRunner mRunner;
+
+        @Override
+        public void postTaskDone() {
+            mPosted.incrementAndGet();
+        }
+
+        @Override
+        public void removeTaskDone() {
+            mPosted.set(0);
+        }
+
+        @Override
+        public boolean isRefreshing() {
+            return mRefreshing;
+        }
+
+        @Override
+        public void refreshComplete(boolean succeeded) {
+            mCompleted++;
+            if (succeeded) {
+                mSucceeded++;
+            }
+        }
+
+        void runPosted() {
+            while (mPosted.get() > 0) {
+                mPosted.decrementAndGet();
+                mRunner.onTaskDone();
+            }
+        }
+    }
+
+    static class FakeRefresh implements SpeculativeRefresh {
+        int mRefreshTasks;
+        int mSpeculativeTasks;
+        RefreshTask mNext;
+        boolean mReturnNull;
+
+        @Override
+        public RefreshTask onRefreshTask(RefreshLayout refreshLayout) {
+            mRefreshTasks++;
+            return mReturnNull ? null : take();
+        }
+
+        @Override
+        public RefreshTask onSpeculativeRefresh(RefreshLayout refreshLayout) {
+            mSpeculativeTasks++;
+            return take();
+        }
+
+        private RefreshTask take() {
+            RefreshTask task = mNext != null ? mNext : new RefreshTask();
+            mNext = null;
+            return task;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.tony.refreshview.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RefreshTaskTest {
+
+    @Test
+    public void complete_notifiesOnce() throws Exception {
+        final AtomicInteger done = new AtomicInteger();
+        RefreshTask task = new RefreshTask();
+        task.setCallback(new RefreshTask.Callback() {
+            @Override
+            public void onTaskDone(RefreshTask task) {
+                done.incrementAndGet();
+            }
+        });
+
+        assertTrue(task.complete());
+        assertFalse(task.complete());
+        assertFalse(task.cancel());
+        assertTrue(task.isDone());
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    public void cancel_notifiesOnce() throws Exception {
+        final AtomicInteger done = new AtomicInteger();
+        RefreshTask task = new RefreshTask();
+        task.setCallback(new RefreshTask.Callback() {
+            @Override
+            public void onTaskDone(RefreshTask task) {
+                assertTrue(task.isCancelled());
+                done.incrementAndGet();
+            }
+        });
+
+        assertTrue(task.cancel());
+        assertFalse(task.cancel());
+        assertFalse(task.complete());
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    public void fail_notifiesOnceAndIsNotDone() throws Exception {
+        final AtomicInteger done = new AtomicInteger();
+        RefreshTask task = new RefreshTask();
+        task.setCallback(new RefreshTask.Callback() {
+            @Override
+            public void onTaskDone(RefreshTask task) {
+                done.incrementAndGet();
+            }
+        });
+
+        assertTrue(task.fail());
+        assertFalse(task.complete());
+        assertFalse(task.cancel());
+        assertTrue(task.isFailed());
+        assertFalse(task.isDone());
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    public void cancel_interruptsFutureAndBlocksComplete() throws Exception {
+        FutureTask<Void> future = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, null);
+        RefreshTask task = RefreshTask.forFuture(future);
+
+        assertTrue(task.cancel());
+        assertTrue(future.isCancelled());
+        assertFalse(task.complete());
+        assertTrue(task.isCancelled());
+    }
+
+    @Test
+    public void completeAndCancelRace_exactlyOneWins() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            final RefreshTask task = new RefreshTask();
+            final CountDownLatch start = new CountDownLatch(1);
+            final boolean[] completed = new boolean[1];
+            Thread loader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    completed[0] = task.complete();
+                }
+            });
+            loader.start();
+            start.countDown();
+            boolean cancelled = task.cancel();
+            loader.join();
+
+            assertTrue(completed[0] ^ cancelled);
+            assertEquals(completed[0], task.isDone());
+        }
+    }
+}
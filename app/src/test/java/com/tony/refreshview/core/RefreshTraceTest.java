@@ -0,0 +1,72 @@
+package com.tony.refreshview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RefreshTraceTest {
+    private final List<long[]> mSpans = new ArrayList<long[]>();
+    private RefreshTrace mTrace;
+
+    @Before
+    public void setUp() {
+        mTrace = new RefreshTrace(new RefreshTrace.Sink() {
+            @Override
+            public void onSpan(int span, long startNanos, long endNanos) {
+                mSpans.add(new long[]{span, startNanos, endNanos});
+            }
+        });
+        mTrace.setSystraceEnabled(false);
+    }
+
+    @Test
+    public void releaseRefresh_reportsContiguousSpans() throws Exception {
+        mTrace.onTouchDown();
+        mTrace.onGestureStart(true);
+        mTrace.onThresholdCrossed();
+        mTrace.beginRefresh();
+        mTrace.endRefreshBegin();
+        mTrace.onDataArrived();
+        mTrace.onClosed();
+
+        assertEquals(6, mSpans.size());
+        for (int i = 0; i < mSpans.size(); i++) {
+            long[] span = mSpans.get(i);
+            assertEquals(i, span[0]);
+            assertTrue(span[1] > 0 && span[2] >= span[1]);
+        }
+        //手势 -> 刷新线 -> 开始加载 -> 数据返回 -> 收回 首尾相接
+        assertEquals(mSpans.get(RefreshTrace.SPAN_PULL)[2], mSpans.get(RefreshTrace.SPAN_RELEASE)[1]);
+        assertEquals(mSpans.get(RefreshTrace.SPAN_RELEASE)[2], mSpans.get(RefreshTrace.SPAN_LOADING)[1]);
+        assertEquals(mSpans.get(RefreshTrace.SPAN_LOADING)[2], mSpans.get(RefreshTrace.SPAN_CLOSE)[1]);
+        assertEquals(mSpans.get(RefreshTrace.SPAN_PULL)[1], mSpans.get(RefreshTrace.SPAN_TOTAL)[1]);
+        assertEquals(mSpans.get(RefreshTrace.SPAN_CLOSE)[2], mSpans.get(RefreshTrace.SPAN_TOTAL)[2]);
+    }
+
+    @Test
+    public void gestureWithoutLoading_reportsNothing() throws Exception {
+        mTrace.onTouchDown();
+        mTrace.onGestureStart(true);
+        mTrace.onClosed();
+        mTrace.onDataArrived();
+        mTrace.onClosed();
+
+        assertTrue(mSpans.isEmpty());
+    }
+
+    @Test
+    public void autoRefresh_startsAtLoadingBegin() throws Exception {
+        mTrace.onGestureStart(false);
+        mTrace.beginRefresh();
+        mTrace.endRefreshBegin();
+        mTrace.onDataArrived();
+        mTrace.onClosed();
+
+        long[] release = mSpans.get(RefreshTrace.SPAN_RELEASE);
+        assertEquals(release[1], release[2]);
+    }
+}
@@ -0,0 +1,77 @@
+package com.tony.refreshview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RelativeTimeFormatterTest {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long NOW = 1466812800000L;
+    private static final String PREFIX = "updated: ";
+
+    private RelativeTimeFormatter mFormatter;
+
+    @Before
+    public void setUp() {
+        mFormatter = new RelativeTimeFormatter(PREFIX, " seconds ago", " minutes ago", " hours ago");
+    }
+
+    private String format(long age) {
+        int result = mFormatter.format(NOW - age, NOW);
+        assertNotEquals(RelativeTimeFormatter.RESULT_EMPTY, result);
+        return new String(mFormatter.getText(), 0, mFormatter.getTextLength());
+    }
+
+    @Test
+    public void sixtyMinuteBoundary() throws Exception {
+        assertEquals("updated: 60 minutes ago", format(60 * MINUTE));
+        assertEquals(MINUTE, mFormatter.getNextChangeDelay());
+        assertEquals("updated: 1 hours ago", format(61 * MINUTE));
+        assertEquals(59 * MINUTE, mFormatter.getNextChangeDelay());
+    }
+
+    @Test
+    public void twentyFourHourBoundary() throws Exception {
+        assertEquals("updated: 24 hours ago", format(24 * HOUR + 59 * MINUTE));
+        assertEquals(MINUTE, mFormatter.getNextChangeDelay());
+
+        String date = format(25 * HOUR);
+        //yyyy-MM-dd HH:mm:ss
+        assertTrue(date, date.matches("updated: \\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"));
+        assertEquals(RelativeTimeFormatter.NEVER, mFormatter.getNextChangeDelay());
+    }
+
+    @Test
+    public void nextChangeDelay_forSecondsAndEmpty() throws Exception {
+        assertEquals("updated: 5 seconds ago", format(5 * SECOND + 500));
+        assertEquals(500, mFormatter.getNextChangeDelay());
+
+        assertEquals(RelativeTimeFormatter.RESULT_EMPTY, mFormatter.format(NOW - 300, NOW));
+        assertEquals(700, mFormatter.getNextChangeDelay());
+        assertEquals(RelativeTimeFormatter.RESULT_EMPTY, mFormatter.format(-1, NOW));
+        assertEquals(RelativeTimeFormatter.NEVER, mFormatter.getNextChangeDelay());
+    }
+
+    @Test
+    public void text_isDoubleBuffered() throws Exception {
+        assertEquals(RelativeTimeFormatter.RESULT_CHANGED, mFormatter.format(NOW - 5 * MINUTE, NOW));
+        char[] shown = mFormatter.getText();
+
+        //文字没变时不交换，交给 TextView 的数组保持不变
+        assertEquals(RelativeTimeFormatter.RESULT_UNCHANGED, mFormatter.format(NOW - 5 * MINUTE - 10 * SECOND, NOW));
+        assertSame(shown, mFormatter.getText());
+        assertEquals("updated: 5 minutes ago", new String(shown, 0, mFormatter.getTextLength()));
+
+        assertEquals(RelativeTimeFormatter.RESULT_CHANGED, mFormatter.format(NOW - 6 * MINUTE, NOW));
+        char[] next = mFormatter.getText();
+        assertNotSame(shown, next);
+        assertEquals("updated: 6 minutes ago", new String(next, 0, mFormatter.getTextLength()));
+
+        //再次变化时复用最早的数组，不再分配
+        assertEquals(RelativeTimeFormatter.RESULT_CHANGED, mFormatter.format(NOW - 7 * MINUTE, NOW));
+        assertSame(shown, mFormatter.getText());
+    }
+}
@@ -0,0 +1,220 @@
+package com.tony.refreshview.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class StaleWhileRevalidateTest {
+
+    private FakePoster mPoster;
+    private QueueExecutor mDiskExecutor;
+    private MemoryRefreshCache<String> mMemory;
+    private MemoryRefreshCache<String> mDisk;
+    private final List<StaleWhileRevalidate.Receiver<String>> mReceivers = new ArrayList<StaleWhileRevalidate.Receiver<String>>();
+    private final List<RefreshTask> mTasks = new ArrayList<RefreshTask>();
+    private final List<String> mLog = new ArrayList<String>();
+    private int mHeaders;
+    private StaleWhileRevalidate<String> mSwr;
+
+    @Before
+    public void setUp() {
+        mPoster = new FakePoster();
+        mDiskExecutor = new QueueExecutor();
+        mMemory = new MemoryRefreshCache<String>(4);
+        mDisk = new MemoryRefreshCache<String>(4);
+        StaleWhileRevalidate.Fetcher<String> fetcher = new StaleWhileRevalidate.Fetcher<String>() {
+            @Override
+            public RefreshTask fetch(StaleWhileRevalidate.Receiver<String> receiver) {
+                mReceivers.add(receiver);
+                RefreshTask task = new RefreshTask();
+                mTasks.add(task);
+                return task;
+            }
+        };
+        StaleWhileRevalidate.Listener<String> listener = new StaleWhileRevalidate.Listener<String>() {
+            @Override
+            public void onData(String value, boolean fresh) {
+                mLog.add((fresh ? "fresh " : "stale ") + value);
+            }
+
+            @Override
+            public void onRevalidateFailed(Throwable error) {
+                mLog.add("failed");
+            }
+        };
+        mSwr = new StaleWhileRevalidate<String>("feed", fetcher, listener, mPoster) {
+            @Override
+            void showHeader() {
+                mHeaders++;
+                super.showHeader();
+            }
+        };
+        mSwr.setMemoryCache(mMemory);
+    }
+
+    @Test
+    public void memoryHit_showsStaleWithoutHeader() throws Exception {
+        mMemory.put("feed", "old");
+        mSwr.load();
+
+        assertEquals(Arrays.asList("stale old"), mLog);
+        assertEquals(1, mReceivers.size());
+        assertTrue(mSwr.isRevalidating());
+
+        mReceivers.get(0).onResult("new");
+        mPoster.advance(0);
+        assertEquals(Arrays.asList("stale old", "fresh new"), mLog);
+        assertEquals("new", mMemory.get("feed"));
+        //加载及时返回，不再显示 Header
+        mPoster.advance(1000);
+        assertEquals(0, mHeaders);
+    }
+
+    @Test
+    public void slowRevalidate_showsHeaderAfterDelay() throws Exception {
+        mMemory.put("feed", "old");
+        mSwr.setSlowRevalidateDelay(300);
+        mSwr.load();
+
+        mPoster.advance(299);
+        assertEquals(0, mHeaders);
+        mPoster.advance(1);
+        assertEquals(1, mHeaders);
+        //等待同一次加载
+        assertEquals(1, mReceivers.size());
+    }
+
+    @Test
+    public void noCache_showsHeaderAndFetches() throws Exception {
+        mSwr.load();
+
+        assertEquals(1, mHeaders);
+        assertEquals(1, mReceivers.size());
+    }
+
+    @Test
+    public void diskReadAfterFetch_isDropped() throws Exception {
+        mDisk.put("feed", "disk");
+        mSwr.setDiskCache(mDisk, mDiskExecutor);
+        mSwr.load();
+        assertEquals(1, mReceivers.size());
+
+        //加载比磁盘读取先返回
+        mReceivers.get(0).onResult("new");
+        mPoster.advance(0);
+        mDiskExecutor.runAll();
+        mPoster.advance(1000);
+
+        assertEquals(Arrays.asList("fresh new"), mLog);
+        assertEquals(0, mHeaders);
+        assertEquals("new", mDisk.get("feed"));
+    }
+
+    @Test
+    public void diskReadFromPreviousLoad_isDropped() throws Exception {
+        mDisk.put("feed", "disk");
+        mSwr.setDiskCache(mDisk, mDiskExecutor);
+        mSwr.load();
+        mSwr.cancel();
+        mSwr.load();
+
+        mDiskExecutor.runAll();
+        mPoster.advance(0);
+        assertEquals(Arrays.asList("stale disk"), mLog);
+        assertTrue(mTasks.get(0).isCancelled());
+        assertEquals(2, mReceivers.size());
+    }
+
+    @Test
+    public void resultAfterCancel_isNotCached() throws Exception {
+        mSwr.load();
+        mSwr.cancel();
+
+        mReceivers.get(0).onResult("late");
+        mPoster.advance(0);
+        mDiskExecutor.runAll();
+
+        assertTrue(mLog.isEmpty());
+        assertNull(mMemory.get("feed"));
+    }
+
+    @Test
+    public void revalidateError_failsTask() throws Exception {
+        mMemory.put("feed", "old");
+        mSwr.load();
+
+        mReceivers.get(0).onError(new RuntimeException());
+        mPoster.advance(0);
+        assertEquals(Arrays.asList("stale old", "failed"), mLog);
+        //失败的加载不记录最后更新时间
+        assertTrue(mTasks.get(0).isFailed());
+    }
+
+    /**
+     * 手动推进时间的 UI 线程
+     */
+    static class FakePoster implements StaleWhileRevalidate.Poster {
+        private final List<Runnable> mRunnables = new ArrayList<Runnable>();
+        private final List<Long> mTimes = new ArrayList<Long>();
+        private long mNow;
+
+        @Override
+        public void post(Runnable r) {
+            postDelayed(r, 0);
+        }
+
+        @Override
+        public void postDelayed(Runnable r, long delayMillis) {
+            mRunnables.add(r);
+            mTimes.add(mNow + delayMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable r) {
+            for (int i = mRunnables.size() - 1; i >= 0; i--) {
+                if (mRunnables.get(i) == r) {
+                    mRunnables.remove(i);
+                    mTimes.remove(i);
+                }
+            }
+        }
+
+        void advance(long millis) {
+            mNow += millis;
+            boolean ran = true;
+            while (ran) {
+                ran = false;
+                for (int i = 0; i < mRunnables.size(); i++) {
+                    if (mTimes.get(i) <= mNow) {
+                        final Runnable r = mRunnables.remove(i);
+                        mTimes.remove(i);
+                        r.run();
+                        ran = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    static class QueueExecutor implements Executor {
+        private final List<Runnable> mQueue = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        void runAll() {
+            while (!mQueue.isEmpty()) {
+                mQueue.remove(0).run();
+            }
+        }
+    }
+}
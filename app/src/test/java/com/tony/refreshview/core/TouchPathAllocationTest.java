@@ -0,0 +1,136 @@
+package com.tony.refreshview.core;
+
+import com.tony.refreshview.indicator.RefreshIndicator;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 拖动过程中 RefreshIndicator、RefreshEngine 和 UIRefreshHolder 不应该分配任何对象。
+ * 移动走 {@link RefreshLayout} 的 movePos 同样的路径：{@link RefreshEngine#getMoveTarget(float)}、
+ * {@link RefreshEngine#moveTo(float)}、{@link RefreshEngine#onPositionChange(boolean)}，再分发给 holder。
+ * <p/>
+ * 拖动次数故意保持很少，避免 JIT 的逃逸分析把分配优化掉而掩盖问题（ART 上没有逃逸分析）。
+ */
+public class TouchPathAllocationTest {
+    private static final int MOVES = 200;
+
+    @Test
+    public void dragSequence_allocatesNothing() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(threadBean);
+
+        RefreshIndicator indicator = new RefreshIndicator();
+        indicator.setHeaderHeight(180);
+        UIRefreshHolder holder = UIRefreshHolder.create();
+        PositionReader reader = new PositionReader();
+        UIRefreshHolder.addHandler(holder, reader);
+        UIRefreshHolder.addHandler(holder, new PositionReader());
+        RefreshEngine engine = new RefreshEngine(new IdleHost(), indicator);
+
+        //预热，加载类并执行一次完整的拖动
+        drag(indicator, engine, holder);
+
+        final long threadId = Thread.currentThread().getId();
+        long overhead = threadBean.getThreadAllocatedBytes(threadId);
+        overhead = threadBean.getThreadAllocatedBytes(threadId) - overhead;
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        drag(indicator, engine, holder);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertTrue("drag sequence allocated " + allocated + " bytes", allocated <= 0);
+        assertTrue(reader.mSum > 0);
+        assertEquals(RefreshEngine.STATUS_INIT, engine.getStatus());
+    }
+
+    private static void drag(RefreshIndicator indicator, RefreshEngine engine, UIRefreshHolder holder) {
+        float y = 100;
+        indicator.onTouchDown(50, y);
+        for (int i = 0; i < MOVES; i++) {
+            y += i < MOVES / 2 ? 3 : -3;
+            indicator.onTouchMove(50, y);
+            final int change = engine.moveTo(engine.getMoveTarget(indicator.getOffsetY()));
+            if (change != 0) {
+                engine.onPositionChange(indicator.isTouch());
+                holder.onUIPositionChange(null, indicator.isTouch(), engine.getStatus(), indicator);
+            }
+        }
+        indicator.onTouchUp();
+    }
+
+    private static void assumeAllocationCounting(com.sun.management.ThreadMXBean threadBean) {
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static class IdleHost implements RefreshEngine.Host {
+        @Override
+        public void onUIReset() {
+        }
+
+        @Override
+        public void onUIRefreshPrepare() {
+        }
+
+        @Override
+        public void onUIRefreshBegin() {
+        }
+
+        @Override
+        public void onUIRefreshComplete() {
+        }
+
+        @Override
+        public boolean takeOverRefreshComplete() {
+            return false;
+        }
+
+        @Override
+        public void scrollTo(int to, int duration, float velocityY) {
+        }
+
+        @Override
+        public boolean isScrolling() {
+            return false;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return 0;
+        }
+
+        @Override
+        public void postRefreshComplete(long delayMillis) {
+        }
+    }
+
+    private static class PositionReader implements UIRefresh {
+        long mSum;
+
+        @Override
+        public void onUIReset(RefreshLayout refreshLayout) {
+        }
+
+        @Override
+        public void onUIRefreshPrepare(RefreshLayout refreshLayout) {
+        }
+
+        @Override
+        public void onUIRefreshBegin(RefreshLayout refreshLayout) {
+        }
+
+        @Override
+        public void onUIRefreshComplete(RefreshLayout refreshLayout) {
+        }
+
+        @Override
+        public void onUIPositionChange(RefreshLayout refreshLayout, boolean isTouch, byte status, RefreshIndicator refreshIndicator) {
+            mSum += refreshIndicator.getCurrentPosY();
+        }
+    }
+}
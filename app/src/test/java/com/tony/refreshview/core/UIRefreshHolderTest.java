@@ -0,0 +1,106 @@
+package com.tony.refreshview.core;
+
+import com.tony.refreshview.indicator.RefreshIndicator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UIRefreshHolderTest {
+
+    private static class RecordingHandler implements UIRefresh, UIRefreshSubscriber {
+        final List<String> mEvents = new ArrayList<String>();
+        int mSubscribed;
+
+        RecordingHandler(int subscribed) {
+            mSubscribed = subscribed;
+        }
+
+        @Override
+        public int getSubscribedEvents() {
+            return mSubscribed;
+        }
+
+        @Override
+        public void onUIReset(RefreshLayout refreshLayout) {
+            mEvents.add("reset");
+        }
+
+        @Override
+        public void onUIRefreshPrepare(RefreshLayout refreshLayout) {
+            mEvents.add("prepare");
+        }
+
+        @Override
+        public void onUIRefreshBegin(RefreshLayout refreshLayout) {
+            mEvents.add("begin");
+        }
+
+        @Override
+        public void onUIRefreshComplete(RefreshLayout refreshLayout) {
+            mEvents.add("complete");
+        }
+
+        @Override
+        public void onUIPositionChange(RefreshLayout refreshLayout, boolean isUnderTouch, byte status, RefreshIndicator ptrIndicator) {
+            mEvents.add("position");
+        }
+    }
+
+    private static void dispatchAll(UIRefreshHolder holder) {
+        holder.onUIReset(null);
+        holder.onUIRefreshPrepare(null);
+        holder.onUIRefreshBegin(null);
+        holder.onUIPositionChange(null, true, RefreshEngine.STATUS_PREPARE, null);
+        holder.onUIRefreshComplete(null);
+    }
+
+    @Test
+    public void subscriber_receivesOnlySubscribedEvents() throws Exception {
+        UIRefreshHolder holder = UIRefreshHolder.create();
+        RecordingHandler all = new RecordingHandler(UIRefreshSubscriber.EVENT_ALL);
+        RecordingHandler beginAndComplete = new RecordingHandler(UIRefreshSubscriber.EVENT_BEGIN | UIRefreshSubscriber.EVENT_COMPLETE);
+        holder.add(all);
+        holder.add(beginAndComplete);
+
+        dispatchAll(holder);
+
+        assertEquals("[reset, prepare, begin, position, complete]", all.mEvents.toString());
+        assertEquals("[begin, complete]", beginAndComplete.mEvents.toString());
+    }
+
+    @Test
+    public void hasPositionHandler_followsSubscriptions() throws Exception {
+        UIRefreshHolder holder = UIRefreshHolder.create();
+        RecordingHandler begin = new RecordingHandler(UIRefreshSubscriber.EVENT_BEGIN);
+        RecordingHandler position = new RecordingHandler(UIRefreshSubscriber.EVENT_POSITION_CHANGE);
+
+        holder.add(begin);
+        assertTrue(holder.hasHandler());
+        assertFalse(holder.hasPositionHandler());
+        holder.add(position);
+        assertTrue(holder.hasPositionHandler());
+        holder.remove(position);
+        assertFalse(holder.hasPositionHandler());
+    }
+
+    @Test
+    public void subscription_isReadOnceWhenAdded() throws Exception {
+        UIRefreshHolder holder = UIRefreshHolder.create();
+        RecordingHandler first = new RecordingHandler(UIRefreshSubscriber.EVENT_BEGIN);
+        holder.add(first);
+        first.mSubscribed = UIRefreshSubscriber.EVENT_ALL;
+
+        //添加和删除其他 handler 不会重新读取 first 的订阅
+        RecordingHandler second = new RecordingHandler(UIRefreshSubscriber.EVENT_RESET);
+        holder.add(second);
+        holder.remove(second);
+        dispatchAll(holder);
+
+        assertEquals("[begin]", first.mEvents.toString());
+        assertFalse(holder.hasPositionHandler());
+    }
+}
@@ -0,0 +1,70 @@
+package com.tony.refreshview.indicator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LoadMoreIndicatorTest {
+
+    @Test
+    public void prefetchDistance_triggersBeforeTheEnd() throws Exception {
+        LoadMoreIndicator indicator = new LoadMoreIndicator();
+        indicator.setPrefetchDistance(500);
+
+        indicator.setPosition(800, LoadMoreIndicator.UNKNOWN);
+        assertFalse(indicator.isInPrefetchRange());
+        indicator.setPosition(500, LoadMoreIndicator.UNKNOWN);
+        assertTrue(indicator.isInPrefetchRange());
+        assertFalse(indicator.isAtEnd());
+    }
+
+    @Test
+    public void prefetchItems_triggersOnEitherDistance() throws Exception {
+        LoadMoreIndicator indicator = new LoadMoreIndicator();
+        indicator.setPrefetchItems(5);
+
+        indicator.setPosition(2000, 6);
+        assertFalse(indicator.isInPrefetchRange());
+        indicator.setPosition(1800, 5);
+        assertTrue(indicator.isInPrefetchRange());
+        //不知道条目数时只按像素判断
+        indicator.setPosition(1800, LoadMoreIndicator.UNKNOWN);
+        assertFalse(indicator.isInPrefetchRange());
+    }
+
+    @Test
+    public void shouldLoadMore_notWhileRefreshingOrLoading() throws Exception {
+        LoadMoreIndicator indicator = new LoadMoreIndicator();
+        indicator.setPosition(0, 0);
+
+        assertTrue(indicator.shouldLoadMore(false, true, false));
+        //下拉刷新中、已经在加载时不加载
+        assertFalse(indicator.shouldLoadMore(false, true, true));
+        assertFalse(indicator.shouldLoadMore(true, true, false));
+    }
+
+    @Test
+    public void shouldLoadMore_gatedByHasMore() throws Exception {
+        LoadMoreIndicator indicator = new LoadMoreIndicator();
+        indicator.setPosition(0, 0);
+        assertFalse(indicator.shouldLoadMore(false, false, false));
+
+        //加载完一页，新的一页布局之前不加载
+        indicator.reset();
+        assertFalse(indicator.shouldLoadMore(false, true, false));
+    }
+
+    @Test
+    public void footer_shownAtEndWhileLoadingOrNoMore() throws Exception {
+        LoadMoreIndicator indicator = new LoadMoreIndicator();
+        indicator.setPrefetchDistance(500);
+        indicator.setPosition(300, LoadMoreIndicator.UNKNOWN);
+        //预加载时还没到底，不显示
+        assertFalse(indicator.shouldShowFooter(true, true));
+
+        indicator.setPosition(-5, LoadMoreIndicator.UNKNOWN);
+        assertTrue(indicator.shouldShowFooter(true, true));
+        assertTrue(indicator.shouldShowFooter(false, false));
+        assertFalse(indicator.shouldShowFooter(false, true));
+    }
+}
@@ -0,0 +1,102 @@
+package com.tony.refreshview.indicator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RefreshIndicatorTest {
+
+    @Test
+    public void subPixelMoves_accumulateUntilWholePixel() throws Exception {
+        RefreshIndicator indicator = new RefreshIndicator();
+        indicator.setHeaderHeight(100);
+        int changes = 0;
+        //慢速拖动，每次 0.4px
+        for (int i = 0; i < 10; i++) {
+            int before = indicator.getCurrentPosY();
+            indicator.setCurrentPosExact(indicator.getCurrentPosExact() + 0.4f);
+            if (indicator.getCurrentPosY() != before) {
+                changes++;
+            }
+        }
+        assertEquals(4, indicator.getCurrentPosY());
+        assertEquals(4, changes);
+        assertEquals(4f, indicator.getCurrentPosExact(), 1e-4f);
+        assertEquals(0.04f, indicator.getCurrentPercent(), 1e-4f);
+    }
+
+    @Test
+    public void setCurrentPos_dropsFraction() throws Exception {
+        RefreshIndicator indicator = new RefreshIndicator();
+        indicator.setCurrentPosExact(10.7f);
+        assertEquals(10, indicator.getCurrentPosY());
+        indicator.snapToPixel();
+        assertEquals(10f, indicator.getCurrentPosExact(), 0f);
+        indicator.setCurrentPos(3);
+        assertEquals(3f, indicator.getCurrentPosExact(), 0f);
+        assertEquals(10, indicator.getLastPosY());
+    }
+
+    @Test
+    public void batchedMoves_endWhereSingleMovesEnd() throws Exception {
+        float[] ys = {100, 130, 170, 160, 150, 175, 210};
+        assertEquals(moveOneByOne(newIndicator(), ys), moveBatched(newIndicator(), ys), 1e-3f);
+    }
+
+    @Test
+    public void batchCrossingTop_endsWhereSingleMovesEnd() throws Exception {
+        //向下、越过顶部、再向下
+        float[] ys = {100, 120, 140, 60, 20, 45, 70};
+        RefreshIndicator single = newIndicator();
+        float expected = moveOneByOne(single, ys);
+        assertEquals(expected, moveBatched(newIndicator(), ys), 1e-3f);
+        assertTrue(expected > 0);
+
+        //从顶部开始先向上，向上的部分不移动
+        float[] upFirst = {100, 80, 60, 75, 90};
+        assertEquals(moveOneByOne(newIndicator(), upFirst), moveBatched(newIndicator(), upFirst), 1e-3f);
+    }
+
+    @Test
+    public void batchEndingAboveTop_stopsAtTop() throws Exception {
+        float[] ys = {100, 150, 190, 120, 40};
+        assertEquals(0f, moveBatched(newIndicator(), ys), 0f);
+        assertEquals(0f, moveOneByOne(newIndicator(), ys), 0f);
+    }
+
+    private static RefreshIndicator newIndicator() {
+        RefreshIndicator indicator = new RefreshIndicator();
+        indicator.setHeaderHeight(100);
+        indicator.setResistanceCurve(ResistanceCurve.progressive(3, 2));
+        return indicator;
+    }
+
+    //第一个采样是按下的位置，之后每个采样一个 move 事件
+    private static float moveOneByOne(RefreshIndicator indicator, float[] ys) {
+        indicator.onTouchDown(0, ys[0]);
+        for (int i = 1; i < ys.length; i++) {
+            indicator.onTouchMove(0, ys[i]);
+            move(indicator);
+        }
+        return indicator.getCurrentPosExact();
+    }
+
+    //第一个采样是按下的位置，之后的采样都在同一个 move 事件中
+    private static float moveBatched(RefreshIndicator indicator, float[] ys) {
+        indicator.onTouchDown(0, ys[0]);
+        indicator.onTouchMove(0, ys[1]);
+        for (int i = 2; i < ys.length; i++) {
+            indicator.onTouchMoveBatched(0, ys[i]);
+        }
+        move(indicator);
+        return indicator.getCurrentPosExact();
+    }
+
+    //RefreshLayout 处理一个 move 事件：向下总是移动，离开顶部后才能向上，停在顶部
+    private static void move(RefreshIndicator indicator) {
+        final float offsetY = indicator.getOffsetY();
+        if (offsetY > 0 || indicator.hasLeftStartPosition()) {
+            indicator.setCurrentPosExact(Math.max(RefreshIndicator.POS_START, indicator.getCurrentPosExact() + offsetY));
+        }
+    }
+}
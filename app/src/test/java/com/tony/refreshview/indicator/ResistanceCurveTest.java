@@ -0,0 +1,45 @@
+package com.tony.refreshview.indicator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResistanceCurveTest {
+
+    @Test
+    public void multiple_isInterpolatedAndClamped() throws Exception {
+        ResistanceCurve curve = new ResistanceCurve(new float[]{1f, 2f, 4f}, 2f);
+        assertEquals(1f, curve.getMultiple(-1f), 0f);
+        assertEquals(1.5f, curve.getMultiple(0.5f), 1e-6f);
+        assertEquals(3f, curve.getMultiple(1.5f), 1e-6f);
+        assertEquals(4f, curve.getMultiple(10f), 0f);
+    }
+
+    @Test
+    public void indicator_withoutCurve_keepsLinearResistance() throws Exception {
+        RefreshIndicator indicator = new RefreshIndicator();
+        indicator.setHeaderHeight(100);
+        indicator.setResistance(2f);
+        indicator.onTouchDown(0, 0);
+        indicator.onTouchMove(0, 50);
+        assertEquals(25f, indicator.getOffsetY(), 0f);
+    }
+
+    @Test
+    public void indicator_resistanceGrowsWithDistance() throws Exception {
+        RefreshIndicator indicator = new RefreshIndicator();
+        indicator.setHeaderHeight(100);
+        indicator.setResistance(2f);
+        indicator.setResistanceCurve(ResistanceCurve.progressive(3f, 2f));
+
+        indicator.onTouchDown(0, 0);
+        indicator.onTouchMove(0, 30);
+        float nearTop = indicator.getOffsetY();
+        indicator.setCurrentPos(150);
+        indicator.onTouchMove(0, 60);
+        float farDown = indicator.getOffsetY();
+
+        assertEquals(15f, nearTop, 1e-4f);
+        assertTrue(farDown < nearTop);
+    }
+}
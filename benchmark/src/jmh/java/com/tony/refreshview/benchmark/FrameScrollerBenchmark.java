@@ -0,0 +1,43 @@
+package com.tony.refreshview.benchmark;
+
+import com.tony.refreshview.core.FrameScroller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 回弹动画每一帧的位置计算
+ */
+@State(Scope.Thread)
+public class FrameScrollerBenchmark {
+    private static final long VSYNC = 16666667L;
+    private static final int DURATION = 500;
+
+    @Param({"0", "1"})
+    public int curve;
+
+    private final FrameScroller mScroller = new FrameScroller();
+    private long mFrameTime;
+
+    @Setup
+    public void setUp() {
+        restart();
+    }
+
+    private void restart() {
+        mFrameTime = 0;
+        mScroller.start(300, -300, DURATION, 0, curve);
+    }
+
+    @Benchmark
+    public int frame() {
+        mFrameTime += VSYNC;
+        if (!mScroller.computePosition(mFrameTime)) {
+            restart();
+        }
+        return mScroller.getCurrentPos();
+    }
+}
@@ -0,0 +1,112 @@
+package com.tony.refreshview.benchmark;
+
+import com.tony.refreshview.core.RefreshEngine;
+import com.tony.refreshview.indicator.RefreshIndicator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 一次完整的下拉刷新在 RefreshEngine 上的开销：按下、逐像素拖过刷新线、松手、
+ * 回弹到保持位置、加载完成、回到顶部。滚动直接跳到终点，只测状态机本身。
+ */
+@State(Scope.Thread)
+public class RefreshEngineBenchmark {
+    private static final int HEADER_HEIGHT = 180;
+    private static final int PULL_DISTANCE = HEADER_HEIGHT * 3 / 2;
+
+    private RefreshIndicator mIndicator;
+    private RefreshEngine mEngine;
+    private BenchmarkHost mHost;
+
+    @Setup
+    public void setUp() {
+        mIndicator = new RefreshIndicator();
+        mIndicator.setHeaderHeight(HEADER_HEIGHT);
+        mHost = new BenchmarkHost();
+        mEngine = new RefreshEngine(mHost, mIndicator);
+        mEngine.setLoadingMinTime(0);
+    }
+
+    @Benchmark
+    public int pullRefreshCycle() {
+        mIndicator.onTouchDown(0, 0);
+        for (int pos = 1; pos <= PULL_DISTANCE; pos++) {
+            moveTo(pos, true);
+        }
+        mIndicator.onTouchUp();
+        mEngine.onRelease(false, 0);
+        runScroll();
+        mEngine.refreshComplete();
+        runScroll();
+        return mHost.mCallbacks;
+    }
+
+    private void moveTo(int pos, boolean isTouch) {
+        mIndicator.setCurrentPos(pos);
+        mEngine.onPositionChange(isTouch);
+    }
+
+    private void runScroll() {
+        int to = mHost.mScrollTo;
+        if (to < 0) {
+            return;
+        }
+        mHost.mScrollTo = -1;
+        if (!mIndicator.isAlreadyHere(to)) {
+            moveTo(to, false);
+        }
+        mEngine.onScrollFinish();
+    }
+
+    private static class BenchmarkHost implements RefreshEngine.Host {
+        int mScrollTo = -1;
+        int mCallbacks;
+
+        @Override
+        public void onUIReset() {
+            mCallbacks++;
+        }
+
+        @Override
+        public void onUIRefreshPrepare() {
+            mCallbacks++;
+        }
+
+        @Override
+        public void onUIRefreshBegin() {
+            mCallbacks++;
+        }
+
+        @Override
+        public void onUIRefreshComplete() {
+            mCallbacks++;
+        }
+
+        @Override
+        public boolean takeOverRefreshComplete() {
+            return false;
+        }
+
+        @Override
+        public void scrollTo(int to, int duration, float velocityY) {
+            mScrollTo = to;
+        }
+
+        @Override
+        public boolean isScrolling() {
+            return mScrollTo >= 0;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return 0;
+        }
+
+        @Override
+        public void postRefreshComplete(long delayMillis) {
+        }
+    }
+}
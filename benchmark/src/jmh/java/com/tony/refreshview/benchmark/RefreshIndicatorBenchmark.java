@@ -0,0 +1,52 @@
+package com.tony.refreshview.benchmark;
+
+import com.tony.refreshview.indicator.RefreshIndicator;
+import com.tony.refreshview.indicator.ResistanceCurve;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 一个 move 事件在 RefreshIndicator 上的全部计算：阻尼、累加位置、取整。
+ * curve 为 true 时使用阻尼曲线，用来确认查表不比固定阻尼的除法慢。
+ */
+@State(Scope.Thread)
+public class RefreshIndicatorBenchmark {
+    private static final int PATH_SIZE = 1024;
+    private static final int HEADER_HEIGHT = 180;
+
+    @Param({"false", "true"})
+    public boolean curve;
+
+    private RefreshIndicator mIndicator;
+    private final float[] mPath = new float[PATH_SIZE];
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mIndicator = new RefreshIndicator();
+        mIndicator.setHeaderHeight(HEADER_HEIGHT);
+        if (curve) {
+            mIndicator.setResistanceCurve(ResistanceCurve.progressive(3f, 2f));
+        }
+        //手指在 0 ~ 3 倍头部高度之间来回拖动
+        for (int i = 0; i < PATH_SIZE; i++) {
+            mPath[i] = (float) ((1 - Math.cos(i * 2 * Math.PI / PATH_SIZE)) * 1.5 * HEADER_HEIGHT);
+        }
+        mIndicator.onTouchDown(0, mPath[0]);
+    }
+
+    @Benchmark
+    public int move() {
+        mIndicator.onTouchMove(0, mPath[mIndex++ & (PATH_SIZE - 1)]);
+        float to = mIndicator.getCurrentPosExact() + mIndicator.getOffsetY();
+        if (to < RefreshIndicator.POS_START) {
+            to = RefreshIndicator.POS_START;
+        }
+        mIndicator.setCurrentPosExact(to);
+        return mIndicator.getCurrentPosY();
+    }
+}
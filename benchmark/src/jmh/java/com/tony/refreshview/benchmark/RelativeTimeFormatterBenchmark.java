@@ -0,0 +1,90 @@
+package com.tony.refreshview.benchmark;
+
+import com.tony.refreshview.core.RelativeTimeFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 最后更新时间的格式化，{@link RelativeTimeFormatter} 与原来 ClassicRefreshHeader 中 StringBuilder 的写法对比。
+ * age 为距离最后更新的时间，分别落在秒、分钟、小时和日期四个分支上。
+ */
+@State(Scope.Thread)
+public class RelativeTimeFormatterBenchmark {
+    private static final String LAST_UPDATE = "last update: ";
+    private static final String SECONDS_AGO = " seconds ago";
+    private static final String MINUTES_AGO = " minutes ago";
+    private static final String HOURS_AGO = " hours ago";
+
+    @Param({"30000", "1800000", "10800000", "259200000"})
+    public long age;
+
+    private final SimpleDateFormat mDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private RelativeTimeFormatter mFormatter;
+    private static final int WINDOW_SECONDS = 20;//now 在 [lastUpdateTime + age, +20s) 内循环，不会越过 age 所在的分支
+
+    private long mLastUpdateTime;
+    private int mTick;
+
+    @Setup
+    public void setUp() {
+        mFormatter = new RelativeTimeFormatter(LAST_UPDATE, SECONDS_AGO, MINUTES_AGO, HOURS_AGO);
+        mLastUpdateTime = System.currentTimeMillis() - age;
+        mTick = 0;
+    }
+
+    //每次前进 1 秒，覆盖文字变化和不变两种情况
+    private long nextNow() {
+        return mLastUpdateTime + age + (mTick++ % WINDOW_SECONDS) * 1000L;
+    }
+
+    @Benchmark
+    public int formatter() {
+        mFormatter.format(mLastUpdateTime, nextNow());
+        return mFormatter.getTextLength();
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyFormat(mLastUpdateTime, nextNow());
+    }
+
+    //原来 ClassicRefreshHeader.getLastUpdateTime 的写法
+    private String legacyFormat(long lastUpdateTime, long now) {
+        long diffTime = now - lastUpdateTime;
+        int seconds = (int) (diffTime / 1000);
+        if (diffTime < 0) {
+            return null;
+        }
+        if (seconds <= 0) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(LAST_UPDATE);
+
+        if (seconds < 60) {
+            sb.append(seconds + SECONDS_AGO);
+        } else {
+            int minutes = (seconds / 60);
+            if (minutes > 60) {
+                int hours = minutes / 60;
+                if (hours > 24) {
+                    Date date = new Date(lastUpdateTime);
+                    sb.append(mDateFormat.format(date));
+                } else {
+                    sb.append(hours + HOURS_AGO);
+                }
+
+            } else {
+                sb.append(minutes + MINUTES_AGO);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.tony.refreshview.benchmark;
+
+import com.tony.refreshview.indicator.ResistanceCurve;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 阻尼曲线查表与固定阻尼除法的对比
+ */
+@State(Scope.Thread)
+public class ResistanceCurveBenchmark {
+    private static final int SIZE = 1024;
+
+    private final float[] mRatios = new float[SIZE];
+    private ResistanceCurve mCurve;
+    private float mResistance = 1.7f;
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mCurve = ResistanceCurve.progressive(3f, 2f);
+        for (int i = 0; i < SIZE; i++) {
+            mRatios[i] = i * 3f / SIZE;
+        }
+    }
+
+    @Benchmark
+    public float constant() {
+        return mRatios[mIndex++ & (SIZE - 1)] / mResistance;
+    }
+
+    @Benchmark
+    public float curve() {
+        final float ratio = mRatios[mIndex++ & (SIZE - 1)];
+        return ratio / (mResistance * mCurve.getMultiple(ratio));
+    }
+}
@@ -0,0 +1,72 @@
+package com.tony.refreshview.benchmark;
+
+import com.tony.refreshview.core.RefreshLayout;
+import com.tony.refreshview.core.UIRefresh;
+import com.tony.refreshview.core.UIRefreshHolder;
+import com.tony.refreshview.indicator.RefreshIndicator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 有 N 个 handler 时一次 onUIPositionChange 的分发，写时复制数组与原来的链表对比
+ */
+@State(Scope.Thread)
+public class UIRefreshHolderBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int handlers;
+
+    private UIRefreshHolder mArrayHolder;
+    private LinkedUIRefreshHolder mLinkedHolder;
+    private final RefreshIndicator mIndicator = new RefreshIndicator();
+
+    @Setup
+    public void setUp() {
+        mArrayHolder = UIRefreshHolder.create();
+        mLinkedHolder = LinkedUIRefreshHolder.create();
+        for (int i = 0; i < handlers; i++) {
+            CountingHandler handler = new CountingHandler();
+            mArrayHolder.add(handler);
+            LinkedUIRefreshHolder.addHandler(mLinkedHolder, handler);
+        }
+    }
+
+    @Benchmark
+    public void array() {
+        mArrayHolder.onUIPositionChange(null, true, RefreshLayout.REFRESH_STATUS_PREPARE, mIndicator);
+    }
+
+    @Benchmark
+    public void linked() {
+        mLinkedHolder.onUIPositionChange(null, true, RefreshLayout.REFRESH_STATUS_PREPARE, mIndicator);
+    }
+
+    private static class CountingHandler implements UIRefresh {
+        int mCount;
+
+        @Override
+        public void onUIReset(RefreshLayout frame) {
+        }
+
+        @Override
+        public void onUIRefreshPrepare(RefreshLayout frame) {
+        }
+
+        @Override
+        public void onUIRefreshBegin(RefreshLayout frame) {
+        }
+
+        @Override
+        public void onUIRefreshComplete(RefreshLayout frame) {
+        }
+
+        @Override
+        public void onUIPositionChange(RefreshLayout frame, boolean isUnderTouch, byte status, RefreshIndicator indicator) {
+            mCount++;
+        }
+    }
+}